@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Compares the shaded jar on a JVM with the native executable: time from process start to the
+# first answered invocation, and peak resident memory of the runtime process. Each variant runs
+# under the Lambda Runtime Interface Emulator (aws-lambda-rie on PATH) against DynamoDB Local.
+#
+#   DYNAMODB_ENDPOINT  DynamoDB Local with a cause_company_stats table (default http://localhost:8000)
+#   RUNS               invocations-from-cold per variant (default 5)
+#
+# Needs GraalVM 21 as JAVA_HOME for the native build.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+DYNAMODB_ENDPOINT="${DYNAMODB_ENDPOINT:-http://localhost:8000}"
+RUNS="${RUNS:-5}"
+HANDLER="com.boycottpro.causecompanystats.IncrementCauseCompanyStatsHandler::handleRequest"
+EVENT="scripts/events/increment.json"
+WORK="target/startup"
+MVN="${MVN:-sh ./mvnw}"
+
+mkdir -p "$WORK"
+$MVN -q -Pdev package -DskipTests
+cp target/increment-cause-company-lambda.jar "$WORK/shaded.jar"
+# The runtime interface client and its com.amazonaws dependencies, for running the jar outside Lambda.
+$MVN -q -Pdev,native dependency:build-classpath -DincludeGroupIds=com.amazonaws \
+    -Dmdep.outputFile="$WORK/ric.classpath"
+$MVN -q -Pdev,native package -DskipTests
+cp target/increment-cause-company-lambda "$WORK/native"
+
+export AWS_REGION=us-east-1 AWS_ACCESS_KEY_ID=local AWS_SECRET_ACCESS_KEY=local
+export AWS_ENDPOINT_URL_DYNAMODB="$DYNAMODB_ENDPOINT" METRICS_ENABLED=false
+
+# Prints "<ms to first response> <peak RSS KiB>" for one cold start of the given command.
+measure() {
+    local start pid runtime_pid elapsed rss
+    start=$(date +%s%N)
+    aws-lambda-rie "$@" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null -d @"$EVENT" \
+            http://localhost:8080/2015-03-31/functions/function/invocations; do
+        sleep 0.005
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    runtime_pid=$(pgrep -P "$pid" | head -n 1)
+    rss=$(awk '/VmHWM/ {print $2}' "/proc/$runtime_pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed $rss"
+}
+
+report() {
+    local name=$1
+    shift
+    local total_ms=0 max_rss=0 ms rss
+    for _ in $(seq "$RUNS"); do
+        read -r ms rss < <(measure "$@")
+        total_ms=$((total_ms + ms))
+        max_rss=$((rss > max_rss ? rss : max_rss))
+    done
+    printf '%-8s first response %5d ms (mean of %d), peak RSS %6d KiB\n' "$name" $((total_ms / RUNS)) "$RUNS" "$max_rss"
+}
+
+report jvm java -cp "$WORK/shaded.jar:$(cat "$WORK/ric.classpath")" \
+    com.amazonaws.services.lambda.runtime.api.client.AWSLambda "$HANDLER"
+report native "$WORK/native" "$HANDLER"
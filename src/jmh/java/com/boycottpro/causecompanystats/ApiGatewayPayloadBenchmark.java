@@ -0,0 +1,133 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same increment as a REST API (v1) and an HTTP API (v2) payload: deserializing the event
+ * alone, and deserializing plus handling it against a zero-latency client. The payloads are
+ * API Gateway's documented shapes with a JWT authorizer; setup prints their sizes, and the GC
+ * profiler's gc.alloc.rate.norm gives the bytes allocated per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ApiGatewayPayloadBenchmark {
+
+    private static final String BODY =
+            "{\\\"company_name\\\":\\\"Some Company\\\",\\\"cause_desc\\\":\\\"Some Cause\\\",\\\"increment\\\":true}";
+
+    static final String REST_EVENT = "{"
+            + "\"resource\":\"/causes/{cause_id}/companies/{company_id}/stats\","
+            + "\"path\":\"/causes/c123/companies/co456/stats\","
+            + "\"httpMethod\":\"POST\","
+            + "\"headers\":{\"accept\":\"application/json\",\"Authorization\":\"Bearer eyJraWQiOiJr\","
+            + "\"content-type\":\"application/json\",\"Host\":\"abc123.execute-api.us-east-1.amazonaws.com\","
+            + "\"User-Agent\":\"okhttp/4.12.0\",\"X-Amzn-Trace-Id\":\"Root=1-65f1c2a3-0a1b2c3d4e5f60718293a4b5\","
+            + "\"X-Forwarded-For\":\"203.0.113.10\",\"X-Forwarded-Port\":\"443\",\"X-Forwarded-Proto\":\"https\"},"
+            + "\"multiValueHeaders\":{\"accept\":[\"application/json\"],\"Authorization\":[\"Bearer eyJraWQiOiJr\"],"
+            + "\"content-type\":[\"application/json\"],\"Host\":[\"abc123.execute-api.us-east-1.amazonaws.com\"],"
+            + "\"User-Agent\":[\"okhttp/4.12.0\"],\"X-Amzn-Trace-Id\":[\"Root=1-65f1c2a3-0a1b2c3d4e5f60718293a4b5\"],"
+            + "\"X-Forwarded-For\":[\"203.0.113.10\"],\"X-Forwarded-Port\":[\"443\"],\"X-Forwarded-Proto\":[\"https\"]},"
+            + "\"queryStringParameters\":null,\"multiValueQueryStringParameters\":null,"
+            + "\"pathParameters\":{\"cause_id\":\"c123\",\"company_id\":\"co456\"},"
+            + "\"stageVariables\":null,"
+            + "\"requestContext\":{\"resourceId\":\"a1b2c3\",\"resourcePath\":\"/causes/{cause_id}/companies/{company_id}/stats\","
+            + "\"httpMethod\":\"POST\",\"extendedRequestId\":\"UvE2xGq8IAMFhYw=\",\"requestTime\":\"13/Mar/2024:12:00:00 +0000\","
+            + "\"path\":\"/prod/causes/c123/companies/co456/stats\",\"accountId\":\"123456789012\",\"protocol\":\"HTTP/1.1\","
+            + "\"stage\":\"prod\",\"domainPrefix\":\"abc123\",\"requestTimeEpoch\":1710331200000,"
+            + "\"requestId\":\"c6af9ac6-7b61-11e6-9a41-93e8deadbeef\","
+            + "\"identity\":{\"cognitoIdentityPoolId\":null,\"accountId\":null,\"cognitoIdentityId\":null,\"caller\":null,"
+            + "\"sourceIp\":\"203.0.113.10\",\"principalOrgId\":null,\"accessKey\":null,\"cognitoAuthenticationType\":null,"
+            + "\"cognitoAuthenticationProvider\":null,\"userArn\":null,\"userAgent\":\"okhttp/4.12.0\",\"user\":null},"
+            + "\"domainName\":\"abc123.execute-api.us-east-1.amazonaws.com\",\"apiId\":\"abc123\","
+            + "\"authorizer\":{\"claims\":{\"sub\":\"11111111-2222-3333-4444-555555555555\","
+            + "\"iss\":\"https://cognito-idp.us-east-1.amazonaws.com/us-east-1_example\",\"token_use\":\"access\","
+            + "\"scope\":\"aws.cognito.signin.user.admin\",\"auth_time\":\"1710331100\",\"exp\":\"Wed Mar 13 13:00:00 UTC 2024\","
+            + "\"iat\":\"Wed Mar 13 12:00:00 UTC 2024\",\"client_id\":\"example-client\",\"username\":\"user\"}}},"
+            + "\"body\":\"" + BODY + "\","
+            + "\"isBase64Encoded\":false}";
+
+    static final String HTTP_EVENT = "{"
+            + "\"version\":\"2.0\",\"routeKey\":\"POST /causes/{cause_id}/companies/{company_id}/stats\","
+            + "\"rawPath\":\"/causes/c123/companies/co456/stats\",\"rawQueryString\":\"\","
+            + "\"headers\":{\"accept\":\"application/json\",\"authorization\":\"Bearer eyJraWQiOiJr\","
+            + "\"content-type\":\"application/json\",\"host\":\"abc123.execute-api.us-east-1.amazonaws.com\","
+            + "\"user-agent\":\"okhttp/4.12.0\",\"x-amzn-trace-id\":\"Root=1-65f1c2a3-0a1b2c3d4e5f60718293a4b5\","
+            + "\"x-forwarded-for\":\"203.0.113.10\",\"x-forwarded-port\":\"443\",\"x-forwarded-proto\":\"https\"},"
+            + "\"requestContext\":{\"accountId\":\"123456789012\",\"apiId\":\"abc123\","
+            + "\"authorizer\":{\"jwt\":{\"claims\":{\"sub\":\"11111111-2222-3333-4444-555555555555\","
+            + "\"iss\":\"https://cognito-idp.us-east-1.amazonaws.com/us-east-1_example\",\"token_use\":\"access\","
+            + "\"scope\":\"aws.cognito.signin.user.admin\",\"auth_time\":\"1710331100\",\"exp\":\"1710334800\","
+            + "\"iat\":\"1710331200\",\"client_id\":\"example-client\",\"username\":\"user\"},\"scopes\":null}},"
+            + "\"domainName\":\"abc123.execute-api.us-east-1.amazonaws.com\",\"domainPrefix\":\"abc123\","
+            + "\"http\":{\"method\":\"POST\",\"path\":\"/causes/c123/companies/co456/stats\",\"protocol\":\"HTTP/1.1\","
+            + "\"sourceIp\":\"203.0.113.10\",\"userAgent\":\"okhttp/4.12.0\"},"
+            + "\"requestId\":\"UvE2xGq8IAMEJvw=\",\"routeKey\":\"POST /causes/{cause_id}/companies/{company_id}/stats\","
+            + "\"stage\":\"$default\",\"time\":\"13/Mar/2024:12:00:00 +0000\",\"timeEpoch\":1710331200000},"
+            + "\"pathParameters\":{\"cause_id\":\"c123\",\"company_id\":\"co456\"},"
+            + "\"body\":\"" + BODY + "\","
+            + "\"isBase64Encoded\":false}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private IncrementCauseCompanyStatsHandler restHandler;
+    private IncrementCauseCompanyStatsHttpApiHandler httpHandler;
+
+    @Setup
+    public void setUp() throws Exception {
+        ZeroLatencyDynamoDbClient dynamoDb = new ZeroLatencyDynamoDbClient();
+        MetricsLogger metrics = new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false);
+        restHandler = new IncrementCauseCompanyStatsHandler(dynamoDb, new HandlerConfig(), metrics);
+        httpHandler = new IncrementCauseCompanyStatsHttpApiHandler(dynamoDb, new HandlerConfig(), metrics, null);
+        if (restEvent().getRequestContext().getAuthorizer() == null
+                || IncrementCauseCompanyStatsHttpApiHandler.sub(httpEvent()) == null) {
+            throw new IllegalStateException("sample events did not deserialize");
+        }
+        System.out.printf("%nREST API event %d bytes, HTTP API event %d bytes%n",
+                REST_EVENT.getBytes(StandardCharsets.UTF_8).length,
+                HTTP_EVENT.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Benchmark
+    public APIGatewayProxyRequestEvent restEvent() throws Exception {
+        return objectMapper.readValue(REST_EVENT, APIGatewayProxyRequestEvent.class);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPEvent httpEvent() throws Exception {
+        return objectMapper.readValue(HTTP_EVENT, APIGatewayV2HTTPEvent.class);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent restRequest() throws Exception {
+        return restHandler.handleRequest(restEvent(), null);
+    }
+
+    @Benchmark
+    public APIGatewayV2HTTPResponse httpRequest() throws Exception {
+        return httpHandler.handleRequest(httpEvent(), null);
+    }
+}
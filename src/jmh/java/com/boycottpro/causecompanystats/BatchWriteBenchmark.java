@@ -0,0 +1,121 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One batch of distinct pairs written three ways against clients with a fixed per-call latency:
+ * one blocking write at a time, eight blocking writers, and the async client with every update
+ * in flight at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchWriteBenchmark {
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    @Param({"40"})
+    public int keys;
+
+    private List<BatchIncrementEntry> entries;
+    private BatchStatsWriter serial;
+    private BatchStatsWriter pooled;
+    private BatchStatsWriter async;
+
+    @Setup
+    public void setUp() {
+        entries = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            entries.add(new BatchIncrementEntry("c1", "co" + i, "Company", "Cause", true));
+        }
+        SleepingClient syncClient = new SleepingClient(latencyMillis);
+        serial = new BatchStatsWriter(new CauseCompanyStatsUpdater(syncClient), 1);
+        pooled = new BatchStatsWriter(new CauseCompanyStatsUpdater(syncClient), 8);
+        async = new BatchStatsWriter(new AsyncCauseCompanyStatsUpdater(new DelayedAsyncClient(latencyMillis)));
+    }
+
+    @Benchmark
+    public String[] syncSerial() throws InterruptedException {
+        return serial.writeAll(entries);
+    }
+
+    @Benchmark
+    public String[] syncPooled() throws InterruptedException {
+        return pooled.writeAll(entries);
+    }
+
+    @Benchmark
+    public String[] asyncInFlight() throws InterruptedException {
+        return async.writeAll(entries);
+    }
+
+    private static final class SleepingClient implements DynamoDbClient {
+        private final long latencyMillis;
+
+        private SleepingClient(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+            ThrottleRetryPolicy.sleep(latencyMillis);
+            return UpdateItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class DelayedAsyncClient implements DynamoDbAsyncClient {
+        private final long latencyMillis;
+
+        private DelayedAsyncClient(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+            return CompletableFuture.supplyAsync(() -> UpdateItemResponse.builder().build(),
+                    CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
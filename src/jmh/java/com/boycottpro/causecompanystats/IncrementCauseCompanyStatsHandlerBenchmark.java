@@ -0,0 +1,100 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.boycottpro.causecompanystats.model.IncrementForm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of the API Gateway handler against a zero-latency client: the whole request, and
+ * body parsing, response serialization and update construction on their own. Metrics are
+ * disabled so the request benchmark does not measure printing EMF lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IncrementCauseCompanyStatsHandlerBenchmark {
+
+    @Param({"true", "false"})
+    public boolean increment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IncrementCauseCompanyStatsHandler handler;
+    private APIGatewayProxyRequestEvent event;
+    private String body;
+    private Map<String, Boolean> successBody;
+    private String successJson;
+    private IncrementFormCodec formCodec;
+
+    @Setup
+    public void setUp() throws Exception {
+        handler = new IncrementCauseCompanyStatsHandler(new ZeroLatencyDynamoDbClient(), new HandlerConfig(),
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false));
+        body = objectMapper.writeValueAsString(new IncrementForm("Some Company", "Some Cause", increment));
+        successBody = Map.of("recordUpdated", true);
+        successJson = objectMapper.writeValueAsString(successBody);
+        formCodec = new IncrementFormCodec(objectMapper);
+
+        event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "c123", "company_id", "co456"));
+        event.setBody(body);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent handleRequest() {
+        return handler.handleRequest(event, null);
+    }
+
+    @Benchmark
+    public IncrementForm parseBody() throws Exception {
+        return objectMapper.readValue(body, IncrementForm.class);
+    }
+
+    @Benchmark
+    public IncrementForm parseBodyStreaming() throws Exception {
+        return formCodec.read(body);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent serializeResponse() {
+        return handler.response(200, successBody);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent cachedResponse() {
+        return handler.cachedResponse(200, successJson);
+    }
+
+    @Benchmark
+    public UpdateItemRequest buildUpdateRequest() {
+        return increment
+                ? CauseCompanyStatsUpdater.buildRequest("c123", "co456", 1, "Some Cause", "Some Company")
+                : CauseCompanyStatsUpdater.buildRequest("c123", "co456", -1, null, null);
+    }
+}
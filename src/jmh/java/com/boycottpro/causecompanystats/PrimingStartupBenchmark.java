@@ -0,0 +1,63 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first response with and without the snapshot priming phase. Every fork is a fresh
+ * JVM that answers exactly one request, so class loading and JIT state never carry over; the
+ * priming itself happens in setup, as it would before the checkpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class PrimingStartupBenchmark {
+
+    @Param({"false", "true"})
+    public boolean primed;
+
+    private IncrementCauseCompanyStatsHandler handler;
+    private APIGatewayProxyRequestEvent event;
+
+    @Setup
+    public void setUp() {
+        handler = new IncrementCauseCompanyStatsHandler(new ZeroLatencyDynamoDbClient(), new HandlerConfig(),
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false));
+        if (primed) {
+            handler.beforeCheckpoint(null);
+        }
+        event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "c123", "company_id", "co456"));
+        event.setBody("{\"company_name\":\"Some Company\",\"cause_desc\":\"Some Cause\",\"increment\":true}");
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent firstRequest() {
+        return handler.handleRequest(event, null);
+    }
+}
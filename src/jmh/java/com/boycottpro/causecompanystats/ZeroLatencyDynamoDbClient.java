@@ -0,0 +1,35 @@
+package com.boycottpro.causecompanystats;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * Answers immediately with a shared response so benchmarks measure only the handler's own work.
+ */
+public class ZeroLatencyDynamoDbClient implements DynamoDbClient {
+
+    private static final UpdateItemResponse UPDATED = UpdateItemResponse.builder().build();
+    private static final GetItemResponse EMPTY = GetItemResponse.builder().build();
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        return UPDATED;
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        return EMPTY;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,147 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.utilities.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the {@code x-amzn-oidc-data} token an ALB with OIDC authentication adds to every request
+ * and returns the caller's sub from it. The token is an ES256 JWT signed by the load balancer;
+ * it is accepted only when the signature verifies against the ALB's regional public key, the
+ * header's {@code signer} is the configured load balancer ARN and it has not expired. The plain
+ * {@code x-amzn-oidc-identity} header is not signed and is never trusted.
+ */
+public class AlbIdentityVerifier {
+
+    /**
+     * The PEM-encoded public key the ALB published for a key id.
+     */
+    @FunctionalInterface
+    public interface KeySource {
+        String publicKeyPem(String kid) throws IOException;
+    }
+
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9-]{1,128}");
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, PublicKey> keys = new ConcurrentHashMap<>();
+    private final String signerArn;
+    private final KeySource keySource;
+    private final LongSupplier epochSeconds;
+
+    public AlbIdentityVerifier(String signerArn, KeySource keySource) {
+        this(signerArn, keySource, () -> System.currentTimeMillis() / 1000L);
+    }
+
+    AlbIdentityVerifier(String signerArn, KeySource keySource, LongSupplier epochSeconds) {
+        if (signerArn == null || signerArn.isBlank()) {
+            throw new IllegalArgumentException("The load balancer ARN that signs x-amzn-oidc-data is required.");
+        }
+        this.signerArn = signerArn;
+        this.keySource = keySource;
+        this.epochSeconds = epochSeconds;
+    }
+
+    /**
+     * Fetches keys from the ELB public key endpoint of the load balancer's own region.
+     */
+    public static AlbIdentityVerifier forLoadBalancer(String signerArn) {
+        String[] arn = signerArn != null ? signerArn.split(":", 6) : new String[0];
+        if (arn.length < 6 || !"elasticloadbalancing".equals(arn[2]) || arn[3].isEmpty()) {
+            throw new IllegalArgumentException("Not a load balancer ARN: " + signerArn);
+        }
+        String endpoint = "https://public-keys.auth.elb." + arn[3] + ".amazonaws.com/";
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        return new AlbIdentityVerifier(signerArn, kid -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint + kid))
+                    .timeout(Duration.ofSeconds(2))
+                    .build();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IOException("public key " + kid + " returned " + response.statusCode());
+                }
+                return response.body();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted fetching public key " + kid, e);
+            }
+        });
+    }
+
+    /**
+     * The verified caller's sub, or null when the token is missing, malformed, expired, signed by
+     * another load balancer or not validly signed.
+     */
+    public String verifiedSub(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            JsonNode header = objectMapper.readTree(decoder.decode(parts[0]));
+            String kid = header.path("kid").asText(null);
+            if (!"ES256".equals(header.path("alg").asText()) || !signerArn.equals(header.path("signer").asText())
+                    || kid == null || !KEY_ID.matcher(kid).matches() || expired(header)) {
+                return null;
+            }
+            Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+            verifier.initVerify(publicKey(kid));
+            verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!verifier.verify(decoder.decode(parts[2]))) {
+                return null;
+            }
+            JsonNode payload = objectMapper.readTree(decoder.decode(parts[1]));
+            if (payload.has("exp") && expired(payload)) {
+                return null;
+            }
+            String sub = payload.path("sub").asText(null);
+            return sub != null && !sub.isBlank() ? sub : null;
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            Logger.error(122, null, "rejected x-amzn-oidc-data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The ALB always sets exp in the header; a header without it is treated as expired.
+    private boolean expired(JsonNode claims) {
+        JsonNode exp = claims.get("exp");
+        return exp == null || !exp.canConvertToLong() || exp.asLong() <= epochSeconds.getAsLong();
+    }
+
+    private PublicKey publicKey(String kid) throws IOException, GeneralSecurityException {
+        PublicKey key = keys.get(kid);
+        if (key == null) {
+            String pem = keySource.publicKeyPem(kid);
+            if (pem == null) {
+                throw new IOException("no public key published for " + kid);
+            }
+            String base64 = pem.replaceAll("-----(BEGIN|END) PUBLIC KEY-----", "").replaceAll("\\s", "");
+            key = KeyFactory.getInstance("EC")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+            keys.put(kid, key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,136 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+import com.boycottpro.utilities.Logger;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking counterpart of {@link CauseCompanyStatsUpdater}. Each update is a future, so a
+ * batch can keep many writes in flight without a thread per write. Throttled and transient
+ * attempts are retried by the same {@link ThrottleRetryPolicy} as the blocking path.
+ *
+ * <p>It writes only the lifetime counter: there are no rollup transactions, so
+ * {@link BatchStatsWriter#fromConfig} uses it only while rollups are off, and it takes no part in
+ * idempotency, which only the single-request entry points offer. Use it for batch writes and
+ * nowhere else.
+ */
+public class AsyncCauseCompanyStatsUpdater {
+
+    private final DynamoDbAsyncClient dynamoDb;
+    private final ShardedCounter shards;
+    private final ThrottleRetryPolicy retryPolicy;
+    private final TtlCache<String, Boolean> recordedShardCounts = new TtlCache<>(
+            CauseCompanyStatsUpdater.RECORDED_SHARD_COUNTS, CauseCompanyStatsUpdater.RECORDED_SHARD_COUNT_TTL_MILLIS);
+
+    public AsyncCauseCompanyStatsUpdater(DynamoDbAsyncClient dynamoDb) {
+        this(dynamoDb, ShardedCounter.unsharded());
+    }
+
+    public AsyncCauseCompanyStatsUpdater(DynamoDbAsyncClient dynamoDb, ShardedCounter shards) {
+        this(dynamoDb, shards, ThrottleRetryPolicy.none());
+    }
+
+    public AsyncCauseCompanyStatsUpdater(DynamoDbAsyncClient dynamoDb, ShardedCounter shards,
+                                         ThrottleRetryPolicy retryPolicy) {
+        this.dynamoDb = dynamoDb;
+        this.shards = shards;
+        this.retryPolicy = retryPolicy != null ? retryPolicy : ThrottleRetryPolicy.none();
+    }
+
+    ThrottleRetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Like {@link CauseCompanyStatsUpdater#createClient()}, the SDK's retries are off so the
+     * policy is the only retry layer.
+     */
+    public static DynamoDbAsyncClient createClient(int maxConcurrency) {
+        return DynamoDbAsyncClient.builder()
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryStrategy(AwsRetryStrategy.doNotRetry())
+                        .build())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConcurrency)
+                        .maxPendingConnectionAcquires(maxConcurrency * 4)
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(2))
+                        .connectionTimeout(Duration.ofSeconds(1))
+                        .connectionMaxIdleTime(Duration.ofSeconds(50))
+                        .tcpKeepAlive(true))
+                .build();
+    }
+
+    public CompletableFuture<Boolean> apply(String causeId, String companyId, int delta, String causeDesc,
+                                            String companyName, String shardHint) {
+        return apply(causeId, companyId, delta, causeDesc, companyName, shardHint, retryPolicy.defaultDeadline());
+    }
+
+    /**
+     * Retries until deadlineNanos (a System.nanoTime() value), each attempt cut off at that
+     * deadline, as {@link CauseCompanyStatsUpdater#apply} does.
+     */
+    public CompletableFuture<Boolean> apply(String causeId, String companyId, int delta, String causeDesc,
+                                            String companyName, String shardHint, long deadlineNanos) {
+        int shard = shards.pickShard(causeId, companyId, shardHint);
+        String targetCompanyId = ShardedCounter.shardCompanyId(companyId, shard);
+        String key = CauseCompanyDelta.key(causeId, targetCompanyId);
+        CompletableFuture<Boolean> result;
+        try {
+            UpdateItemRequest request = CauseCompanyStatsUpdater.buildRequest(causeId, companyId, shard, delta,
+                    causeDesc, companyName);
+            result = recordShardCount(causeId, companyId, deadlineNanos)
+                    .thenCompose(recorded -> retryPolicy.executeAsync(key, deadlineNanos,
+                            () -> dynamoDb.updateItem(withTimeout(request, deadlineNanos))))
+                    .thenApply(response -> true);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((updated, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                Logger.error(102, shardHint, "update of " + key + " failed: " + cause.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Records the pair's shard count on its base item before the first write to its shards, as
+     * the blocking path does.
+     */
+    private CompletableFuture<Void> recordShardCount(String causeId, String companyId, long deadlineNanos) {
+        int shardCount = shards.shardCount(causeId, companyId);
+        String key = CauseCompanyStatsUpdater.shardCountKey(causeId, companyId, shardCount);
+        if (shardCount <= 1 || recordedShardCounts.get(key) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        UpdateItemRequest request = CauseCompanyStatsUpdater.shardCountRequest(causeId, companyId, shardCount);
+        return retryPolicy.executeAsync(key, deadlineNanos,
+                () -> dynamoDb.updateItem(withTimeout(request, deadlineNanos))).handle((response, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    // A failed condition means it is recorded already, at this count or a higher one.
+                    if (cause != null && !(cause instanceof ConditionalCheckFailedException)) {
+                        throw error instanceof CompletionException ? (CompletionException) error
+                                : new CompletionException(error);
+                    }
+                    recordedShardCounts.put(key, Boolean.TRUE);
+                    return null;
+                });
+    }
+
+    private static UpdateItemRequest withTimeout(UpdateItemRequest request, long deadlineNanos) {
+        AwsRequestOverrideConfiguration timeout = ThrottleRetryPolicy.attemptTimeout(deadlineNanos);
+        return timeout != null ? request.toBuilder().overrideConfiguration(timeout).build() : request;
+    }
+}
@@ -0,0 +1,98 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import com.boycottpro.causecompanystats.model.BatchIncrementForm;
+import com.boycottpro.causecompanystats.model.BatchIncrementResult;
+import com.boycottpro.models.ResponseMessage;
+import com.boycottpro.utilities.JwtUtility;
+import com.boycottpro.utilities.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BatchIncrementCauseCompanyStatsHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final Map<String, String> JSON_HEADERS = Map.of("Content-Type", "application/json");
+    static final int MAX_ENTRIES = 100;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BatchStatsWriter batchWriter;
+
+    public BatchIncrementCauseCompanyStatsHandler() {
+        this(BatchStatsWriter.fromConfig(HandlerConfig.fromEnvironment()));
+    }
+
+    public BatchIncrementCauseCompanyStatsHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, null);
+    }
+
+    public BatchIncrementCauseCompanyStatsHandler(DynamoDbClient dynamoDb, HandlerConfig config) {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        CauseCompanyStatsUpdater updater = CauseCompanyStatsUpdater.fromConfig(dynamoDb, settings);
+        this.batchWriter = new BatchStatsWriter(updater, settings.getBatchWriteParallelism());
+    }
+
+    public BatchIncrementCauseCompanyStatsHandler(BatchStatsWriter batchWriter) {
+        this.batchWriter = batchWriter;
+    }
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent event, Context context) {
+        String sub = null;
+        int lineNum = 49;
+        try {
+            sub = JwtUtility.getSubFromRestEvent(event);
+            if (sub == null) {
+                Logger.error(53, sub, "user is Unauthorized");
+                return response(401, Map.of("message", "Unauthorized"));
+            }
+            lineNum = 56;
+            BatchIncrementForm form = event.getBody() == null ? null
+                    : objectMapper.readValue(event.getBody(), BatchIncrementForm.class);
+            List<BatchIncrementEntry> entries = form != null ? form.getEntries() : null;
+            if (entries == null || entries.isEmpty() || entries.size() > MAX_ENTRIES) {
+                Logger.error(61, sub, "batch must contain between 1 and " + MAX_ENTRIES + " entries");
+                return response(400, new ResponseMessage(400,
+                        "Invalid batch", "entries must contain between 1 and " + MAX_ENTRIES + " items."));
+            }
+            lineNum = 65;
+            return response(200, Map.of("results", incrementAll(entries, context)));
+
+        } catch (Exception e) {
+            Logger.error(lineNum, sub, e.getMessage());
+            return response(500, Map.of("error", "Unexpected server error: " + e.getMessage()));
+        }
+    }
+
+    private List<BatchIncrementResult> incrementAll(List<BatchIncrementEntry> entries, Context context)
+            throws InterruptedException {
+        String[] errors = batchWriter.writeAll(entries, context);
+        List<BatchIncrementResult> results = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            BatchIncrementEntry entry = entries.get(i);
+            results.add(new BatchIncrementResult(entry != null ? entry.getCause_id() : null,
+                    entry != null ? entry.getCompany_id() : null, errors[i] == null, errors[i]));
+        }
+        return results;
+    }
+
+    private APIGatewayProxyResponseEvent response(int status, Object body) {
+        String responseBody = null;
+        try {
+            responseBody = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(status)
+                .withHeaders(JSON_HEADERS)
+                .withBody(responseBody);
+    }
+}
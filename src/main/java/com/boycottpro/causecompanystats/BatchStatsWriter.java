@@ -0,0 +1,187 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Merges entries that target the same cause/company pair into one net delta and writes the
+ * distinct pairs concurrently, either from up to {@code parallelism} threads over the blocking
+ * client or as in-flight futures on the async client. Results are reported per entry, in input
+ * order.
+ */
+public class BatchStatsWriter {
+
+    // Shared by every blocking writer; idle threads exit, so a frozen or finished container keeps none.
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "batch-stats-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CauseCompanyStatsUpdater updater;
+    private final int parallelism;
+    private final AsyncCauseCompanyStatsUpdater asyncUpdater;
+    private final ThrottleRetryPolicy retryPolicy;
+
+    public BatchStatsWriter(CauseCompanyStatsUpdater updater, int parallelism) {
+        this.updater = updater;
+        this.parallelism = Math.max(1, parallelism);
+        this.asyncUpdater = null;
+        this.retryPolicy = updater.retryPolicy();
+    }
+
+    public BatchStatsWriter(AsyncCauseCompanyStatsUpdater updater) {
+        this.updater = null;
+        this.parallelism = 1;
+        this.asyncUpdater = updater;
+        this.retryPolicy = updater.retryPolicy();
+    }
+
+    public static BatchStatsWriter fromConfig(HandlerConfig config) {
+        // Rollup transactions go through the sync updater, so they take precedence over async writes.
+        if (config.isAsyncWrites() && !config.isRollupsEnabled() && nettyAvailable()) {
+            return new BatchStatsWriter(new AsyncCauseCompanyStatsUpdater(
+                    AsyncCauseCompanyStatsUpdater.createClient(config.getAsyncMaxConcurrency()),
+                    config.shardedCounter(), config.throttleRetryPolicy()));
+        }
+        CauseCompanyStatsUpdater updater = CauseCompanyStatsUpdater.fromConfig(CauseCompanyStatsUpdater.createClient(), config);
+        return new BatchStatsWriter(updater, config.getBatchWriteParallelism());
+    }
+
+    // The native image is built without Netty, so there ASYNC_WRITES falls back to blocking writes.
+    static boolean nettyAvailable() {
+        try {
+            Class.forName("software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient", false,
+                    BatchStatsWriter.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public String[] writeAll(List<BatchIncrementEntry> entries) throws InterruptedException {
+        return writeAll(entries, null);
+    }
+
+    /**
+     * Returns one error message per entry, or null where the entry was applied. Retries stop in
+     * time for the invocation to answer; without a context the policy's default budget applies.
+     * Entries that cancel out to no change and carry no metadata are not written.
+     */
+    public String[] writeAll(List<BatchIncrementEntry> entries, Context context) throws InterruptedException {
+        long deadlineNanos = retryPolicy.deadline(context);
+        String[] errors = new String[entries.size()];
+        String[] keys = new String[entries.size()];
+        Map<String, CauseCompanyDelta> merged = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BatchIncrementEntry entry = entries.get(i);
+            errors[i] = validate(entry);
+            if (errors[i] != null) {
+                continue;
+            }
+            keys[i] = CauseCompanyDelta.key(entry.getCause_id(), entry.getCompany_id());
+            merged.computeIfAbsent(keys[i], k -> new CauseCompanyDelta(entry.getCause_id(), entry.getCompany_id()))
+                    .add(entry.isIncrement(), entry.getCause_desc(), entry.getCompany_name());
+        }
+        merged.values().removeIf(delta -> delta.getDelta() == 0 && delta.getCauseDesc() == null);
+
+        Map<String, CompletableFuture<?>> writes = asyncUpdater != null
+                ? writeAsync(merged, deadlineNanos) : writePooled(merged, deadlineNanos);
+        Map<String, String> writeErrors = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<?>> write : writes.entrySet()) {
+            try {
+                write.getValue().get();
+            } catch (ExecutionException e) {
+                writeErrors.put(write.getKey(), String.valueOf(rootCause(e).getMessage()));
+            }
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (errors[i] == null) {
+                errors[i] = writeErrors.get(keys[i]);
+            }
+        }
+        return errors;
+    }
+
+    private Map<String, CompletableFuture<?>> writeAsync(Map<String, CauseCompanyDelta> merged, long deadlineNanos) {
+        Map<String, CompletableFuture<?>> writes = new HashMap<>();
+        for (Map.Entry<String, CauseCompanyDelta> pending : merged.entrySet()) {
+            CauseCompanyDelta delta = pending.getValue();
+            CompletableFuture<?> write;
+            try {
+                write = asyncUpdater.apply(delta.getCauseId(), delta.getCompanyId(), delta.getDelta(),
+                        delta.getCauseDesc(), delta.getCompanyName(), null, deadlineNanos);
+            } catch (RuntimeException e) {
+                write = CompletableFuture.failedFuture(e);
+            }
+            writes.put(pending.getKey(), write);
+        }
+        return writes;
+    }
+
+    /**
+     * Up to parallelism workers, the calling thread among them, take pairs from one queue until
+     * it is empty.
+     */
+    private Map<String, CompletableFuture<?>> writePooled(Map<String, CauseCompanyDelta> merged, long deadlineNanos) {
+        Map<String, CompletableFuture<?>> writes = new HashMap<>();
+        Queue<CauseCompanyDelta> queue = new ConcurrentLinkedQueue<>(merged.values());
+        for (String key : merged.keySet()) {
+            writes.put(key, new CompletableFuture<Void>());
+        }
+        Runnable worker = () -> {
+            CauseCompanyDelta delta;
+            while ((delta = queue.poll()) != null) {
+                CompletableFuture<?> write = writes.get(CauseCompanyDelta.key(delta.getCauseId(), delta.getCompanyId()));
+                try {
+                    updater.apply(delta.getCauseId(), delta.getCompanyId(), delta.getDelta(), delta.getCauseDesc(),
+                            delta.getCompanyName(), null, deadlineNanos);
+                    write.complete(null);
+                } catch (RuntimeException e) {
+                    write.completeExceptionally(e);
+                }
+            }
+        };
+        for (int i = 1; i < Math.min(parallelism, merged.size()); i++) {
+            WRITERS.execute(worker);
+        }
+        worker.run();
+        return writes;
+    }
+
+    private static Throwable rootCause(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    static String validate(BatchIncrementEntry entry) {
+        if (entry == null) {
+            return "entry is empty";
+        }
+        if (entry.getCause_id() == null || entry.getCompany_id() == null) {
+            return "cause_id and company_id are required";
+        }
+        try {
+            CauseCompanyStatsUpdater.validate(entry.getCause_desc(), entry.getCompany_name(), entry.isIncrement());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.RollupBucket;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hourly and daily buckets of a cause/company pair's deltas, kept next to the lifetime total.
+ * Items are keyed by {@code pair_key} ("cause#company", per shard when the pair is sharded) and a
+ * sortable {@code bucket} ("H#2024-05-01T13" or "D#2024-05-01"), so a time range is one Query.
+ * Hourly buckets carry {@code expires_at} for the table's TTL; daily buckets are kept.
+ */
+public class CauseCompanyRollups {
+
+    public enum Granularity {
+        HOUR("H#", DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH").withZone(ZoneOffset.UTC)),
+        DAY("D#", DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC));
+
+        private final String prefix;
+        private final DateTimeFormatter format;
+
+        Granularity(String prefix, DateTimeFormatter format) {
+            this.prefix = prefix;
+            this.format = format;
+        }
+
+        public String bucket(Instant time) {
+            return prefix + format.format(time);
+        }
+    }
+
+    static final String PAIR_KEY = "pair_key";
+    static final String BUCKET = "bucket";
+    private static final String HOURLY_EXPRESSION =
+            "SET boycott_count = if_not_exists(boycott_count, :zero) + :delta, expires_at = :expires_at";
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final long hourlyTtlSeconds;
+    private final ShardedCounter shards;
+    private final Clock clock;
+
+    public CauseCompanyRollups(DynamoDbClient dynamoDb, String tableName, long hourlyTtlSeconds,
+                               ShardedCounter shards, Clock clock) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.hourlyTtlSeconds = hourlyTtlSeconds;
+        this.shards = shards;
+        this.clock = clock;
+    }
+
+    public static CauseCompanyRollups fromConfig(DynamoDbClient dynamoDb, HandlerConfig config) {
+        return new CauseCompanyRollups(dynamoDb, config.getRollupTable(),
+                config.getHourlyRollupTtlDays() * 86_400L, config.shardedCounter(), Clock.systemUTC());
+    }
+
+    static String pairKey(String causeId, String companyId) {
+        return causeId + "#" + companyId;
+    }
+
+    /**
+     * The hourly and daily bucket updates for one delta, to go in the same transaction as the
+     * lifetime total. companyId is the shard actually written.
+     */
+    public List<TransactWriteItem> bucketWrites(String causeId, String companyId, int delta) {
+        Instant now = clock.instant();
+        Instant hourStart = now.truncatedTo(ChronoUnit.HOURS);
+        AttributeValue pairKey = AttributeValue.fromS(pairKey(causeId, companyId));
+        AttributeValue deltaValue = CauseCompanyStatsUpdater.delta(delta);
+        Update hourly = Update.builder()
+                .tableName(tableName)
+                .key(Map.of(PAIR_KEY, pairKey, BUCKET, AttributeValue.fromS(Granularity.HOUR.bucket(now))))
+                .updateExpression(HOURLY_EXPRESSION)
+                .expressionAttributeValues(Map.of(
+                        ":zero", AttributeValue.fromN("0"),
+                        ":delta", deltaValue,
+                        ":expires_at", AttributeValue.fromN(
+                                Long.toString(hourStart.getEpochSecond() + 3_600L + hourlyTtlSeconds))))
+                .build();
+        Update daily = Update.builder()
+                .tableName(tableName)
+                .key(Map.of(PAIR_KEY, pairKey, BUCKET, AttributeValue.fromS(Granularity.DAY.bucket(now))))
+                .updateExpression(CauseCompanyStatsUpdater.COUNT_ONLY_EXPRESSION)
+                .expressionAttributeValues(Map.of(":zero", AttributeValue.fromN("0"), ":delta", deltaValue))
+                .build();
+        return List.of(TransactWriteItem.builder().update(hourly).build(),
+                TransactWriteItem.builder().update(daily).build());
+    }
+
+    /**
+     * Buckets of the pair from {@code from} to {@code to} inclusive, oldest first, with the shards
+     * of a sharded pair summed. Each shard is one paginated Query on the sort key, covering every
+     * shard the pair's stats item records as written; buckets with no activity are absent.
+     */
+    public List<RollupBucket> readRange(String causeId, String companyId, Granularity granularity,
+                                        Instant from, Instant to) {
+        TreeMap<String, Long> totals = new TreeMap<>();
+        GetItemResponse stats = dynamoDb.getItem(GetItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .key(CauseCompanyStatsReader.key(causeId, companyId))
+                .projectionExpression("shard_count")
+                .build());
+        int shardCount = shards.readShardCount(causeId, companyId, stats.hasItem() ? stats.item() : null);
+        for (String shardCompanyId : ShardedCounter.shardCompanyIds(companyId, 0, shardCount)) {
+            Map<String, AttributeValue> startKey = null;
+            do {
+                QueryResponse page = dynamoDb.query(QueryRequest.builder()
+                        .tableName(tableName)
+                        .keyConditionExpression("pair_key = :pair_key AND #bucket BETWEEN :from AND :to")
+                        .expressionAttributeNames(Map.of("#bucket", BUCKET))
+                        .expressionAttributeValues(Map.of(
+                                ":pair_key", AttributeValue.fromS(pairKey(causeId, shardCompanyId)),
+                                ":from", AttributeValue.fromS(granularity.bucket(from)),
+                                ":to", AttributeValue.fromS(granularity.bucket(to))))
+                        .exclusiveStartKey(startKey)
+                        .build());
+                for (Map<String, AttributeValue> item : page.items()) {
+                    totals.merge(item.get(BUCKET).s(), CauseCompanyStatsReader.count(item), Long::sum);
+                }
+                startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty()
+                        ? page.lastEvaluatedKey() : null;
+            } while (startKey != null);
+        }
+        List<RollupBucket> buckets = new ArrayList<>(totals.size());
+        totals.forEach((bucket, count) -> buckets.add(new RollupBucket(bucket, count)));
+        return buckets;
+    }
+}
@@ -0,0 +1,62 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts recently read or written in this container, keyed by cause/company pair. One instance
+ * is shared by every handler in the container, so a write seen here is reflected in the next
+ * read; writes made by other containers show up once the entry expires.
+ */
+public class CauseCompanyStatsCache {
+
+    private static CauseCompanyStatsCache shared;
+    private final TtlCache<String, Long> counts;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CauseCompanyStatsCache(int maxEntries, long ttlMillis) {
+        this.counts = new TtlCache<>(maxEntries, ttlMillis);
+    }
+
+    /**
+     * The container-wide instance, sized by whichever handler asks for it first.
+     */
+    public static synchronized CauseCompanyStatsCache shared(HandlerConfig config) {
+        if (shared == null) {
+            shared = new CauseCompanyStatsCache(config.getStatsCacheSize(), config.getStatsCacheTtlMillis());
+        }
+        return shared;
+    }
+
+    public Long get(String causeId, String companyId) {
+        Long count = counts.get(CauseCompanyDelta.key(causeId, companyId));
+        (count != null ? hits : misses).incrementAndGet();
+        return count;
+    }
+
+    public void put(String causeId, String companyId, long count) {
+        counts.put(CauseCompanyDelta.key(causeId, companyId), count);
+    }
+
+    public void invalidate(String causeId, String companyId) {
+        counts.invalidate(CauseCompanyDelta.key(causeId, companyId));
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Hit ratio since the container started, as a percentage.
+     */
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : 100.0 * hits.get() / total;
+    }
+}
@@ -0,0 +1,149 @@
+package com.boycottpro.causecompanystats;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads boycott_count for a cause/company pair, summing every shard item in one BatchGetItem.
+ */
+public class CauseCompanyStatsReader {
+
+    static final int MAX_BATCH_GET = 100;
+    private static final int MAX_UNPROCESSED_RETRIES = 8;
+    private final DynamoDbClient dynamoDb;
+    private final ShardedCounter shards;
+
+    public CauseCompanyStatsReader(DynamoDbClient dynamoDb) {
+        this(dynamoDb, ShardedCounter.unsharded());
+    }
+
+    public CauseCompanyStatsReader(DynamoDbClient dynamoDb, ShardedCounter shards) {
+        this.dynamoDb = dynamoDb;
+        this.shards = shards;
+    }
+
+    public long readCount(String causeId, String companyId) {
+        int shardCount = shards.shardCount(causeId, companyId);
+        int recorded = shardCount;
+        long total = 0;
+        for (Map<String, AttributeValue> item : batchGet(keys(causeId, companyId, 0, shardCount))) {
+            AttributeValue itemCompanyId = item.get("company_id");
+            if (itemCompanyId != null && companyId.equals(itemCompanyId.s())) {
+                recorded = Math.max(recorded, ShardedCounter.recordedShardCount(item));
+            }
+            total += count(item);
+        }
+        for (Map<String, AttributeValue> item : batchGet(keys(causeId, companyId, shardCount, recorded))) {
+            total += count(item);
+        }
+        return total;
+    }
+
+    /**
+     * Reads the counts of many companies for one cause, every shard of every pair chunked into
+     * BatchGetItem calls. Companies without an item count as zero. Shards beyond the configured
+     * count that a base item records as written are read in a second round.
+     */
+    public Map<String, Long> readCounts(String causeId, List<String> companyIds) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Map<String, Integer> shardsRead = new HashMap<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String companyId : companyIds) {
+            if (counts.putIfAbsent(companyId, 0L) == null) {
+                int shardCount = shards.shardCount(causeId, companyId);
+                shardsRead.put(companyId, shardCount);
+                keys.addAll(keys(causeId, companyId, 0, shardCount));
+            }
+        }
+        List<Map<String, AttributeValue>> moreKeys = new ArrayList<>();
+        for (Map<String, AttributeValue> item : batchGet(keys)) {
+            AttributeValue companyId = item.get("company_id");
+            Integer read = companyId != null ? shardsRead.get(companyId.s()) : null;
+            int recorded = ShardedCounter.recordedShardCount(item);
+            if (read != null && recorded > read) {
+                moreKeys.addAll(keys(causeId, companyId.s(), read, recorded));
+            }
+            merge(counts, item);
+        }
+        for (Map<String, AttributeValue> item : batchGet(moreKeys)) {
+            merge(counts, item);
+        }
+        return counts;
+    }
+
+    private static void merge(Map<String, Long> counts, Map<String, AttributeValue> item) {
+        if (item.get("company_id") != null) {
+            counts.merge(ShardedCounter.baseCompanyId(item), count(item), Long::sum);
+        }
+    }
+
+    List<Map<String, AttributeValue>> batchGet(List<Map<String, AttributeValue>> keys) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += MAX_BATCH_GET) {
+            List<Map<String, AttributeValue>> chunk = keys.subList(start, Math.min(keys.size(), start + MAX_BATCH_GET));
+            Map<String, KeysAndAttributes> requestItems = Map.of(CauseCompanyStatsUpdater.TABLE_NAME,
+                    KeysAndAttributes.builder()
+                            .keys(chunk)
+                            .projectionExpression("cause_id, company_id, boycott_count, shard_of, shard_count")
+                            .build());
+            int attempt = 0;
+            while (requestItems != null && !requestItems.isEmpty()) {
+                if (attempt > MAX_UNPROCESSED_RETRIES) {
+                    throw DynamoDbException.builder()
+                            .message("BatchGetItem left unprocessed keys after " + MAX_UNPROCESSED_RETRIES + " retries")
+                            .build();
+                }
+                if (attempt > 0) {
+                    backoff(attempt);
+                }
+                BatchGetItemResponse response = dynamoDb.batchGetItem(BatchGetItemRequest.builder()
+                        .requestItems(requestItems)
+                        .build());
+                items.addAll(response.responses().getOrDefault(CauseCompanyStatsUpdater.TABLE_NAME, List.of()));
+                requestItems = response.unprocessedKeys();
+                attempt++;
+            }
+        }
+        return items;
+    }
+
+    private static List<Map<String, AttributeValue>> keys(String causeId, String companyId, int fromShard,
+                                                           int toShard) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String shardCompanyId : ShardedCounter.shardCompanyIds(companyId, fromShard, toShard)) {
+            keys.add(key(causeId, shardCompanyId));
+        }
+        return keys;
+    }
+
+    static Map<String, AttributeValue> key(String causeId, String companyId) {
+        return Map.of(
+                "cause_id", AttributeValue.fromS(causeId),
+                "company_id", AttributeValue.fromS(companyId)
+        );
+    }
+
+    static long count(Map<String, AttributeValue> item) {
+        AttributeValue count = item.get("boycott_count");
+        return count != null && count.n() != null ? Long.parseLong(count.n()) : 0L;
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(Math.min(1000L, 10L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw DynamoDbException.builder().message("Interrupted while retrying unprocessed keys").build();
+        }
+    }
+}
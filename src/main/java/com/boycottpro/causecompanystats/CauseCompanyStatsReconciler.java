@@ -0,0 +1,370 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+import com.boycottpro.utilities.Logger;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Recomputes every pair's boycott_count from the user boycott records (one item per boycott,
+ * carrying cause_id and company_id) and writes the difference to cause_company_stats. Both tables
+ * are read with a parallel Scan, one fork-join worker per segment; each worker counts its segment
+ * into its own map of mutable counters and the maps are merged as the workers join, so nothing
+ * is shared while scanning and memory grows with the number of pairs, not items.
+ *
+ * <p>The two scans run one after the other and take minutes on a large table, so a boycott
+ * recorded between them shows up as drift that is not there. Each drifted pair is therefore
+ * recounted just before it is corrected: its boycotts through the {@code RECONCILE_SOURCE_INDEX}
+ * GSI and its stats items (every shard) with consistent reads. The correction is written only if
+ * that drift equals the one the scans found; a pair whose counts moved in between is reported as
+ * unsettled and left for the next run. Corrections are deltas applied through
+ * {@link CauseCompanyStatsUpdater}, paced to {@code RECONCILE_WRITES_PER_SECOND}; a pair whose
+ * turn would not come within the call budget is reported as deferred and left for the next run.
+ * A pair whose recount or write fails is reported as a failure and the run moves on. A pair with
+ * no boycotts left is corrected to zero rather than deleted.
+ *
+ * <p>The recount narrows the race to the few milliseconds between it and the write, plus the GSI's
+ * replication lag; a boycott written in that window can still be miscounted by one until the next
+ * run. For an exact result, run with boycott writes paused.
+ *
+ * <p>Run with {@code java -cp target/increment-cause-company-lambda.jar
+ * com.boycottpro.causecompanystats.CauseCompanyStatsReconciler}; set {@code RECONCILE_DRY_RUN=true}
+ * to report the drift without writing.
+ */
+public class CauseCompanyStatsReconciler {
+
+    private static final String SOURCE_PROJECTION = "cause_id, company_id";
+    private static final String STATS_PROJECTION = "cause_id, company_id, boycott_count, shard_of";
+    private static final String RATE_KEY = "reconcile";
+    private static final long CALL_BUDGET_NANOS = 60_000_000_000L;
+    private final DynamoDbClient dynamoDb;
+    private final String sourceTable;
+    private final String sourceIndex;
+    private final int segments;
+    private final ShardedCounter shards;
+    private final ThrottleRetryPolicy retryPolicy;
+    private final HotKeyRateLimiter writeLimiter;
+    private final CauseCompanyStatsUpdater updater;
+    private final boolean dryRun;
+
+    public CauseCompanyStatsReconciler(DynamoDbClient dynamoDb, String sourceTable, String sourceIndex,
+                                       int segments, long writesPerSecond, ShardedCounter shards,
+                                       ThrottleRetryPolicy retryPolicy, boolean dryRun) {
+        this(dynamoDb, sourceTable, sourceIndex, segments,
+                new HotKeyRateLimiter(Math.max(1, writesPerSecond), 1, 1), shards, retryPolicy, dryRun);
+    }
+
+    CauseCompanyStatsReconciler(DynamoDbClient dynamoDb, String sourceTable, String sourceIndex, int segments,
+                                HotKeyRateLimiter writeLimiter, ShardedCounter shards,
+                                ThrottleRetryPolicy retryPolicy, boolean dryRun) {
+        this.dynamoDb = dynamoDb;
+        this.sourceTable = sourceTable;
+        this.sourceIndex = sourceIndex;
+        this.segments = Math.max(1, segments);
+        this.shards = shards;
+        this.retryPolicy = retryPolicy;
+        this.writeLimiter = writeLimiter;
+        this.updater = new CauseCompanyStatsUpdater(dynamoDb, shards, retryPolicy);
+        this.dryRun = dryRun;
+    }
+
+    public static CauseCompanyStatsReconciler fromConfig(DynamoDbClient dynamoDb, HandlerConfig config) {
+        return new CauseCompanyStatsReconciler(dynamoDb, config.getReconcileSourceTable(),
+                config.getReconcileSourceIndex(), config.getReconcileSegments(), config.getReconcileWritesPerSecond(),
+                config.shardedCounter(), config.throttleRetryPolicy(), config.isReconcileDryRun());
+    }
+
+    public static void main(String[] args) {
+        try (DynamoDbClient dynamoDb = CauseCompanyStatsUpdater.createClient()) {
+            Report report = fromConfig(dynamoDb, HandlerConfig.fromEnvironment()).reconcile();
+            System.out.println(report);
+        }
+    }
+
+    public Report reconcile() {
+        Report report = new Report();
+        Map<String, PairCount> expected;
+        Map<String, PairCount> actual;
+        ForkJoinPool pool = new ForkJoinPool(segments);
+        try {
+            expected = pool.invoke(new SegmentScan(sourceTable, SOURCE_PROJECTION, 0, segments,
+                    CauseCompanyStatsReconciler::sourcePair, item -> 1L, report));
+            actual = pool.invoke(new SegmentScan(CauseCompanyStatsUpdater.TABLE_NAME, STATS_PROJECTION, 0, segments,
+                    CauseCompanyStatsReconciler::statsPair, CauseCompanyStatsReader::count, null));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (Map.Entry<String, PairCount> entry : actual.entrySet()) {
+            PairCount counted = expected.remove(entry.getKey());
+            PairCount stored = entry.getValue();
+            if (stored.count < 0) {
+                report.negativeCounts++;
+            }
+            correct(stored, (counted != null ? counted.count : 0) - stored.count, report);
+        }
+        for (PairCount counted : expected.values()) {
+            correct(counted, counted.count, report);
+        }
+        report.pairs = actual.size() + expected.size();
+        return report;
+    }
+
+    private void correct(PairCount pair, long delta, Report report) {
+        if (delta == 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + CALL_BUDGET_NANOS;
+        // Paced before the recount, so the write follows it without waiting.
+        if (!dryRun && !writeLimiter.acquire(RATE_KEY, deadline)) {
+            report.deferred++;
+            return;
+        }
+        try {
+            if (recount(pair.causeId, pair.companyId) != delta) {
+                report.unsettled++;
+                return;
+            }
+        } catch (SdkException e) {
+            report.failures++;
+            Logger.error(146, null, "failed to recount " + pair + ": " + e.getMessage());
+            return;
+        }
+        report.corrections++;
+        report.absoluteDrift += Math.abs(delta);
+        if (dryRun) {
+            return;
+        }
+        try {
+            updater.apply(pair.causeId, pair.companyId, Math.toIntExact(delta), null, null, null, deadline);
+        } catch (SdkException | ArithmeticException e) {
+            report.failures++;
+            Logger.error(158, null, "failed to correct " + pair + " by " + delta + ": " + e.getMessage());
+        }
+    }
+
+    // The pair's drift as it stands now: boycotts counted through the index less its stats items.
+    private long recount(String causeId, String companyId) {
+        long boycotts = 0;
+        Map<String, AttributeValue> startKey = null;
+        do {
+            long deadline = System.nanoTime() + CALL_BUDGET_NANOS;
+            QueryRequest request = QueryRequest.builder()
+                    .tableName(sourceTable)
+                    .indexName(sourceIndex)
+                    .keyConditionExpression("cause_id = :cause_id AND company_id = :company_id")
+                    .expressionAttributeValues(Map.of(
+                            ":cause_id", AttributeValue.fromS(causeId),
+                            ":company_id", AttributeValue.fromS(companyId)))
+                    .select(Select.COUNT)
+                    .exclusiveStartKey(startKey)
+                    .build();
+            QueryResponse page = retryPolicy.execute(sourceTable + "#recount", deadline,
+                    () -> dynamoDb.query(request.toBuilder()
+                            .overrideConfiguration(ThrottleRetryPolicy.attemptTimeout(deadline)).build()));
+            boycotts += page.count();
+            startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty()
+                    ? page.lastEvaluatedKey() : null;
+        } while (startKey != null);
+
+        // The base item comes first: it records how many shards the pair was ever written with.
+        long stored = 0;
+        int shardCount = shards.shardCount(causeId, companyId);
+        for (int shard = 0; shard < shardCount; shard++) {
+            Map<String, AttributeValue> item = readStats(causeId, ShardedCounter.shardCompanyId(companyId, shard));
+            if (shard == 0) {
+                shardCount = shards.readShardCount(causeId, companyId, item);
+            }
+            stored += item != null ? CauseCompanyStatsReader.count(item) : 0;
+        }
+        return boycotts - stored;
+    }
+
+    private Map<String, AttributeValue> readStats(String causeId, String shardCompanyId) {
+        long deadline = System.nanoTime() + CALL_BUDGET_NANOS;
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .key(CauseCompanyStatsReader.key(causeId, shardCompanyId))
+                .projectionExpression("boycott_count, shard_count")
+                .consistentRead(true)
+                .build();
+        GetItemResponse item = retryPolicy.execute(CauseCompanyStatsUpdater.TABLE_NAME + "#recount", deadline,
+                () -> dynamoDb.getItem(request.toBuilder()
+                        .overrideConfiguration(ThrottleRetryPolicy.attemptTimeout(deadline)).build()));
+        return item.hasItem() ? item.item() : null;
+    }
+
+    // null for items missing either key, which the source scan counts as skipped.
+    private static PairCount sourcePair(Map<String, AttributeValue> item) {
+        AttributeValue causeId = item.get("cause_id");
+        AttributeValue companyId = item.get("company_id");
+        if (causeId == null || causeId.s() == null || companyId == null || companyId.s() == null) {
+            return null;
+        }
+        return new PairCount(causeId.s(), companyId.s());
+    }
+
+    // Shard items count toward their base pair.
+    private static PairCount statsPair(Map<String, AttributeValue> item) {
+        return new PairCount(item.get("cause_id").s(), ShardedCounter.baseCompanyId(item));
+    }
+
+    /**
+     * One pair's running count during a scan; maps of these are keyed by
+     * {@link CauseCompanyDelta#key}, but the ids are kept as read since either may contain '#'.
+     */
+    private static final class PairCount {
+        private final String causeId;
+        private final String companyId;
+        private long count;
+
+        private PairCount(String causeId, String companyId) {
+            this.causeId = causeId;
+            this.companyId = companyId;
+        }
+
+        private String key() {
+            return CauseCompanyDelta.key(causeId, companyId);
+        }
+
+        @Override
+        public String toString() {
+            return key();
+        }
+    }
+
+    /**
+     * Scans segments [lo, hi) of the table. A single segment is one paginated Scan; a range is
+     * split in half, the halves run in parallel and the smaller map is merged into the larger.
+     */
+    private final class SegmentScan extends RecursiveTask<Map<String, PairCount>> {
+        private final String tableName;
+        private final String projection;
+        private final int lo;
+        private final int hi;
+        private final Function<Map<String, AttributeValue>, PairCount> pair;
+        private final ToLongFunction<Map<String, AttributeValue>> count;
+        private final Report report;
+
+        private SegmentScan(String tableName, String projection, int lo, int hi,
+                            Function<Map<String, AttributeValue>, PairCount> pair,
+                            ToLongFunction<Map<String, AttributeValue>> count, Report report) {
+            this.tableName = tableName;
+            this.projection = projection;
+            this.lo = lo;
+            this.hi = hi;
+            this.pair = pair;
+            this.count = count;
+            this.report = report;
+        }
+
+        @Override
+        protected Map<String, PairCount> compute() {
+            if (hi - lo == 1) {
+                return scanSegment();
+            }
+            int mid = (lo + hi) >>> 1;
+            SegmentScan right = new SegmentScan(tableName, projection, mid, hi, pair, count, report);
+            right.fork();
+            Map<String, PairCount> left = new SegmentScan(tableName, projection, lo, mid, pair, count, report).compute();
+            return merge(left, right.join());
+        }
+
+        private Map<String, PairCount> scanSegment() {
+            Map<String, PairCount> counts = new HashMap<>();
+            long scanned = 0;
+            long skipped = 0;
+            Map<String, AttributeValue> startKey = null;
+            do {
+                long deadline = System.nanoTime() + CALL_BUDGET_NANOS;
+                ScanRequest request = ScanRequest.builder()
+                        .tableName(tableName)
+                        .projectionExpression(projection)
+                        .segment(lo)
+                        .totalSegments(segments)
+                        .exclusiveStartKey(startKey)
+                        .build();
+                ScanResponse page = retryPolicy.execute(tableName + "#" + lo, deadline,
+                        () -> dynamoDb.scan(request.toBuilder()
+                                .overrideConfiguration(ThrottleRetryPolicy.attemptTimeout(deadline)).build()));
+                for (Map<String, AttributeValue> item : page.items()) {
+                    scanned++;
+                    PairCount read = pair.apply(item);
+                    if (read == null) {
+                        skipped++;
+                        continue;
+                    }
+                    counts.computeIfAbsent(read.key(), k -> read).count += count.applyAsLong(item);
+                }
+                startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty()
+                        ? page.lastEvaluatedKey() : null;
+            } while (startKey != null);
+            if (report != null) {
+                report.itemsScanned.addAndGet(scanned);
+                report.itemsSkipped.addAndGet(skipped);
+            }
+            return counts;
+        }
+    }
+
+    private static Map<String, PairCount> merge(Map<String, PairCount> a, Map<String, PairCount> b) {
+        Map<String, PairCount> into = a.size() >= b.size() ? a : b;
+        Map<String, PairCount> from = into == a ? b : a;
+        for (Map.Entry<String, PairCount> entry : from.entrySet()) {
+            PairCount existing = into.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                existing.count += entry.getValue().count;
+            }
+        }
+        return into;
+    }
+
+    /**
+     * What one run found and fixed. The counters after itemsSkipped are written only by the
+     * thread that runs {@link #reconcile()}.
+     */
+    public static class Report {
+        private final AtomicLong itemsScanned = new AtomicLong();
+        private final AtomicLong itemsSkipped = new AtomicLong();
+        private long pairs;
+        private long corrections;
+        private long unsettled;
+        private long deferred;
+        private long absoluteDrift;
+        private long negativeCounts;
+        private long failures;
+
+        public long getItemsScanned() { return itemsScanned.get(); }
+        public long getItemsSkipped() { return itemsSkipped.get(); }
+        public long getPairs() { return pairs; }
+        public long getCorrections() { return corrections; }
+        public long getUnsettled() { return unsettled; }
+        public long getDeferred() { return deferred; }
+        public long getAbsoluteDrift() { return absoluteDrift; }
+        public long getNegativeCounts() { return negativeCounts; }
+        public long getFailures() { return failures; }
+
+        @Override
+        public String toString() {
+            return "itemsScanned=" + itemsScanned + " itemsSkipped=" + itemsSkipped + " pairs=" + pairs
+                    + " corrections=" + corrections + " unsettled=" + unsettled + " deferred=" + deferred
+                    + " absoluteDrift=" + absoluteDrift + " negativeCounts=" + negativeCounts + " failures=" + failures;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+import com.boycottpro.utilities.Logger;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds and applies the cause_company_stats update shared by every entry point.
+ */
+public class CauseCompanyStatsUpdater {
+
+    public static final String TABLE_NAME = "cause_company_stats";
+    static final String COUNT_ONLY_EXPRESSION = "SET boycott_count = if_not_exists(boycott_count, :zero) + :delta";
+    static final String COUNT_WITH_METADATA_EXPRESSION = COUNT_ONLY_EXPRESSION
+            + ", company_name = if_not_exists(company_name, :company_name)"
+            + ", cause_desc = if_not_exists(cause_desc, :cause_desc)";
+    static final String SHARD_EXPRESSION = COUNT_ONLY_EXPRESSION + ", shard_of = :shard_of";
+    static final String SHARD_COUNT_EXPRESSION = "SET shard_count = :shard_count";
+    static final String SHARD_COUNT_CONDITION = "attribute_not_exists(shard_count) OR shard_count < :shard_count";
+    // Pairs whose shard count this container has already recorded; each is written once per TTL.
+    static final int RECORDED_SHARD_COUNTS = 10_000;
+    static final long RECORDED_SHARD_COUNT_TTL_MILLIS = 600_000L;
+    private static final AttributeValue ZERO = AttributeValue.fromN("0");
+    private static final AttributeValue PLUS_ONE = AttributeValue.fromN("1");
+    private static final AttributeValue MINUS_ONE = AttributeValue.fromN("-1");
+    private final DynamoDbClient dynamoDb;
+    private final ShardedCounter shards;
+    private final ThrottleRetryPolicy retryPolicy;
+    private final CauseCompanyRollups rollups;
+    private final TtlCache<String, Boolean> recordedShardCounts =
+            new TtlCache<>(RECORDED_SHARD_COUNTS, RECORDED_SHARD_COUNT_TTL_MILLIS);
+
+    public CauseCompanyStatsUpdater(DynamoDbClient dynamoDb) {
+        this(dynamoDb, ShardedCounter.unsharded());
+    }
+
+    public CauseCompanyStatsUpdater(DynamoDbClient dynamoDb, ShardedCounter shards) {
+        this(dynamoDb, shards, ThrottleRetryPolicy.none());
+    }
+
+    public CauseCompanyStatsUpdater(DynamoDbClient dynamoDb, ShardedCounter shards, ThrottleRetryPolicy retryPolicy) {
+        this(dynamoDb, shards, retryPolicy, null);
+    }
+
+    /**
+     * With rollups, every delta is written in one transaction with its hourly and daily buckets,
+     * so the buckets always sum to the lifetime total.
+     */
+    public CauseCompanyStatsUpdater(DynamoDbClient dynamoDb, ShardedCounter shards, ThrottleRetryPolicy retryPolicy,
+                                    CauseCompanyRollups rollups) {
+        this.dynamoDb = dynamoDb;
+        this.shards = shards;
+        this.retryPolicy = retryPolicy;
+        this.rollups = rollups;
+    }
+
+    ThrottleRetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    public static CauseCompanyStatsUpdater fromConfig(DynamoDbClient dynamoDb, HandlerConfig config) {
+        return new CauseCompanyStatsUpdater(dynamoDb, config.shardedCounter(), config.throttleRetryPolicy(),
+                config.isRollupsEnabled() ? CauseCompanyRollups.fromConfig(dynamoDb, config) : null);
+    }
+
+    /**
+     * A client with the SDK's retries turned off, for every entry point that writes through a
+     * {@link ThrottleRetryPolicy}. With the default client each policy attempt would itself be
+     * retried by the SDK, multiplying calls and running past the deadline. Other calls on this
+     * client (idempotency claims, reads) get one attempt, and their failures reach the caller as
+     * retryable errors.
+     */
+    public static DynamoDbClient createClient() {
+        return DynamoDbClient.builder()
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryStrategy(AwsRetryStrategy.doNotRetry())
+                        .build())
+                .build();
+    }
+
+    public static void validate(String causeDesc, String companyName, boolean increment) {
+        if (increment && (companyName == null || causeDesc == null)) {
+            throw new IllegalArgumentException("companyName and causeDesc are required when incrementing.");
+        }
+    }
+
+    /**
+     * Only the key and the metadata values vary per call; the expressions and the numeric
+     * constants are shared.
+     */
+    public static UpdateItemRequest buildRequest(String causeId, String companyId, int delta, String causeDesc,
+                                                 String companyName) {
+        Map<String, AttributeValue> key = Map.of(
+                "cause_id", AttributeValue.fromS(causeId),
+                "company_id", AttributeValue.fromS(companyId)
+        );
+        boolean withMetadata = companyName != null && causeDesc != null;
+        Map<String, AttributeValue> expressionAttributeValues = withMetadata
+                ? Map.of(":zero", ZERO, ":delta", delta(delta),
+                        ":company_name", AttributeValue.fromS(companyName),
+                        ":cause_desc", AttributeValue.fromS(causeDesc))
+                : Map.of(":zero", ZERO, ":delta", delta(delta));
+
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(key)
+                .updateExpression(withMetadata ? COUNT_WITH_METADATA_EXPRESSION : COUNT_ONLY_EXPRESSION)
+                .expressionAttributeValues(expressionAttributeValues)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build();
+    }
+
+    /**
+     * The update of shard n of a pair (n at least 1): the count and the base company_id, no
+     * metadata, so the shard item is never mistaken for a company of its own.
+     */
+    static UpdateItemRequest buildShardRequest(String causeId, String companyId, int shard, int delta) {
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(CauseCompanyStatsReader.key(causeId, ShardedCounter.shardCompanyId(companyId, shard)))
+                .updateExpression(SHARD_EXPRESSION)
+                .expressionAttributeValues(Map.of(":zero", ZERO, ":delta", delta(delta),
+                        ":shard_of", AttributeValue.fromS(companyId)))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build();
+    }
+
+    /**
+     * The request for whichever shard was picked: shard 0 is the pair's own item.
+     */
+    static UpdateItemRequest buildRequest(String causeId, String companyId, int shard, int delta, String causeDesc,
+                                          String companyName) {
+        return shard == 0 ? buildRequest(causeId, companyId, delta, causeDesc, companyName)
+                : buildShardRequest(causeId, companyId, shard, delta);
+    }
+
+    /**
+     * Raises the shard_count recorded on the pair's base item to shardCount; it fails its
+     * condition when the recorded count is already as high.
+     */
+    static UpdateItemRequest shardCountRequest(String causeId, String companyId, int shardCount) {
+        return UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(CauseCompanyStatsReader.key(causeId, companyId))
+                .updateExpression(SHARD_COUNT_EXPRESSION)
+                .conditionExpression(SHARD_COUNT_CONDITION)
+                .expressionAttributeValues(Map.of(":shard_count", AttributeValue.fromN(Integer.toString(shardCount))))
+                .build();
+    }
+
+    static String shardCountKey(String causeId, String companyId, int shardCount) {
+        return CauseCompanyDelta.key(causeId, companyId) + ShardedCounter.SHARD_SEPARATOR + shardCount;
+    }
+
+    static AttributeValue delta(int delta) {
+        switch (delta) {
+            case 1:
+                return PLUS_ONE;
+            case -1:
+                return MINUS_ONE;
+            default:
+                return AttributeValue.fromN(Integer.toString(delta));
+        }
+    }
+
+    public UpdateItemResponse apply(String causeId, String companyId, int delta, String causeDesc,
+                                    String companyName) {
+        return apply(causeId, companyId, delta, causeDesc, companyName, null);
+    }
+
+    /**
+     * Applies the delta to one shard of the pair. The same shardHint (the caller's sub) always
+     * lands on the same shard; without a hint the shard is picked at random.
+     */
+    public UpdateItemResponse apply(String causeId, String companyId, int delta, String causeDesc,
+                                    String companyName, String shardHint) {
+        return apply(causeId, companyId, delta, causeDesc, companyName, shardHint, retryPolicy.defaultDeadline());
+    }
+
+    /**
+     * Throttled and transient attempts are retried by the policy until deadlineNanos (a
+     * System.nanoTime() value), and each attempt is cut off at that deadline; other failures are
+     * not retried.
+     */
+    public UpdateItemResponse apply(String causeId, String companyId, int delta, String causeDesc,
+                                    String companyName, String shardHint, long deadlineNanos) {
+        int shard = shards.pickShard(causeId, companyId, shardHint);
+        String targetCompanyId = ShardedCounter.shardCompanyId(companyId, shard);
+        UpdateItemRequest request = buildRequest(causeId, companyId, shard, delta, causeDesc, companyName);
+        try {
+            recordShardCount(causeId, companyId, deadlineNanos);
+            if (rollups != null) {
+                TransactWriteItemsRequest transaction = transactionRequest(request,
+                        rollups.bucketWrites(causeId, targetCompanyId, delta));
+                return retryPolicy.execute(CauseCompanyDelta.key(causeId, targetCompanyId), deadlineNanos,
+                        () -> transactionResponse(dynamoDb.transactWriteItems(withTimeout(transaction, deadlineNanos))));
+            }
+            return retryPolicy.execute(CauseCompanyDelta.key(causeId, targetCompanyId), deadlineNanos,
+                    () -> dynamoDb.updateItem(withTimeout(request, deadlineNanos)));
+        } catch (SdkException e) {
+            // Retries are over by now; the policy rethrows only the last failure.
+            Logger.error(223, shardHint, "update of " + CauseCompanyDelta.key(causeId, targetCompanyId)
+                    + " failed: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Readers cover every shard up to the highest count a pair was ever written with, so that
+     * count is recorded on the base item before the first write to its shards.
+     */
+    private void recordShardCount(String causeId, String companyId, long deadlineNanos) {
+        int shardCount = shards.shardCount(causeId, companyId);
+        String key = shardCountKey(causeId, companyId, shardCount);
+        if (shardCount <= 1 || recordedShardCounts.get(key) != null) {
+            return;
+        }
+        UpdateItemRequest request = shardCountRequest(causeId, companyId, shardCount);
+        try {
+            retryPolicy.execute(key, deadlineNanos, () -> dynamoDb.updateItem(withTimeout(request, deadlineNanos)));
+        } catch (ConditionalCheckFailedException e) {
+            // Recorded already, at this count or a higher one.
+        }
+        recordedShardCounts.put(key, Boolean.TRUE);
+    }
+
+    private static UpdateItemRequest withTimeout(UpdateItemRequest request, long deadlineNanos) {
+        AwsRequestOverrideConfiguration timeout = ThrottleRetryPolicy.attemptTimeout(deadlineNanos);
+        return timeout != null ? request.toBuilder().overrideConfiguration(timeout).build() : request;
+    }
+
+    private static TransactWriteItemsRequest withTimeout(TransactWriteItemsRequest request, long deadlineNanos) {
+        AwsRequestOverrideConfiguration timeout = ThrottleRetryPolicy.attemptTimeout(deadlineNanos);
+        return timeout != null ? request.toBuilder().overrideConfiguration(timeout).build() : request;
+    }
+
+    static TransactWriteItemsRequest transactionRequest(UpdateItemRequest request, List<TransactWriteItem> buckets) {
+        List<TransactWriteItem> items = new ArrayList<>(buckets.size() + 1);
+        items.add(TransactWriteItem.builder().update(Update.builder()
+                .tableName(request.tableName())
+                .key(request.key())
+                .updateExpression(request.updateExpression())
+                .expressionAttributeValues(request.expressionAttributeValues())
+                .build()).build());
+        items.addAll(buckets);
+        return TransactWriteItemsRequest.builder()
+                .transactItems(items)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * A transaction returns no item attributes, so the response carries only the stats table's
+     * consumed capacity and callers treat the new count as unknown.
+     */
+    static UpdateItemResponse transactionResponse(TransactWriteItemsResponse response) {
+        if (!response.hasConsumedCapacity()) {
+            return UpdateItemResponse.builder().build();
+        }
+        for (ConsumedCapacity capacity : response.consumedCapacity()) {
+            if (TABLE_NAME.equals(capacity.tableName())) {
+                return UpdateItemResponse.builder().consumedCapacity(capacity).build();
+            }
+        }
+        return UpdateItemResponse.builder().build();
+    }
+
+    /**
+     * True when the pair is a single item, so the boycott_count an update returns is the total.
+     */
+    public boolean isSingleItem(String causeId, String companyId) {
+        return shards.shardCount(causeId, companyId) == 1;
+    }
+
+    public ThrottleRetryPolicy getRetryPolicy() { return retryPolicy; }
+}
@@ -0,0 +1,109 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.LeaderboardEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The leaderboard of one cause: up to 2K companies with their exact totals, plus a floor that no
+ * company left off the board can exceed. Totals are absolute, so applying the same change twice
+ * is harmless. While at least K entries are at or above the floor the top K are exact; once
+ * decrements push entries under it, {@link #needsRebuild()} asks for a rebuild from the table.
+ */
+public class CauseTopCompaniesBoard {
+
+    static final Comparator<LeaderboardEntry> RANKING = Comparator
+            .comparingLong(LeaderboardEntry::getBoycott_count).reversed()
+            .thenComparing(LeaderboardEntry::getCompany_id);
+    private final int size;
+    private final int capacity;
+    private final Map<String, LeaderboardEntry> entries = new HashMap<>();
+    private long floor;
+
+    public CauseTopCompaniesBoard(int size) {
+        this.size = Math.max(1, size);
+        this.capacity = this.size * 2;
+    }
+
+    public CauseTopCompaniesBoard(int size, Collection<LeaderboardEntry> entries, long floor) {
+        this(size);
+        for (LeaderboardEntry entry : entries) {
+            this.entries.put(entry.getCompany_id(), entry);
+        }
+        this.floor = Math.max(0, floor);
+        trim();
+    }
+
+    public void apply(String companyId, String companyName, long total) {
+        LeaderboardEntry entry = entries.get(companyId);
+        if (entry != null) {
+            if (total <= 0) {
+                entries.remove(companyId);
+                return;
+            }
+            entry.setBoycott_count(total);
+            if (companyName != null) {
+                entry.setCompany_name(companyName);
+            }
+        } else if (total > floor) {
+            entries.put(companyId, new LeaderboardEntry(companyId, companyName, total));
+            trim();
+        }
+    }
+
+    public boolean needsRebuild() {
+        if (floor == 0) {
+            return false;
+        }
+        long atOrAboveFloor = entries.values().stream().filter(entry -> entry.getBoycott_count() >= floor).count();
+        return atOrAboveFloor < size;
+    }
+
+    /**
+     * Replaces the board with the leaders among every company total of the cause.
+     */
+    public void rebuild(Collection<LeaderboardEntry> allTotals) {
+        List<LeaderboardEntry> ranked = new ArrayList<>();
+        for (LeaderboardEntry total : allTotals) {
+            if (total.getBoycott_count() > 0) {
+                ranked.add(total);
+            }
+        }
+        ranked.sort(RANKING);
+        entries.clear();
+        for (LeaderboardEntry entry : ranked.subList(0, Math.min(capacity, ranked.size()))) {
+            entries.put(entry.getCompany_id(), entry);
+        }
+        floor = ranked.size() > capacity ? ranked.get(capacity).getBoycott_count() : 0;
+    }
+
+    public List<LeaderboardEntry> top() {
+        List<LeaderboardEntry> ranked = entries();
+        return new ArrayList<>(ranked.subList(0, Math.min(size, ranked.size())));
+    }
+
+    public List<LeaderboardEntry> entries() {
+        List<LeaderboardEntry> ranked = new ArrayList<>(entries.values());
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    public long getFloor() { return floor; }
+    public int getSize() { return size; }
+
+    private void trim() {
+        if (entries.size() <= capacity) {
+            return;
+        }
+        List<LeaderboardEntry> ranked = entries();
+        for (LeaderboardEntry evicted : ranked.subList(capacity, ranked.size())) {
+            entries.remove(evicted.getCompany_id());
+            floor = Math.max(floor, evicted.getBoycott_count());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.LeaderboardEntry;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps one leaderboard item per cause. Changes are applied read-modify-write under an optimistic
+ * version check, so stream batches from different shards can update the same cause safely.
+ */
+public class CauseTopCompaniesStore {
+
+    private static final int MAX_VERSION_CONFLICTS = 5;
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final int size;
+
+    public CauseTopCompaniesStore(DynamoDbClient dynamoDb, String tableName, int size) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.size = size;
+    }
+
+    public static CauseTopCompaniesStore fromConfig(DynamoDbClient dynamoDb, HandlerConfig config) {
+        return new CauseTopCompaniesStore(dynamoDb, config.getLeaderboardTable(), config.getLeaderboardSize());
+    }
+
+    /**
+     * The current top companies of a cause, most boycotted first, in one GetItem.
+     */
+    public List<LeaderboardEntry> readTop(String causeId) {
+        Map<String, AttributeValue> item = dynamoDb.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("cause_id", AttributeValue.fromS(causeId)))
+                .build()).item();
+        return board(item).top();
+    }
+
+    public void update(String causeId, Consumer<CauseTopCompaniesBoard> change) {
+        for (int attempt = 1; ; attempt++) {
+            Map<String, AttributeValue> item = dynamoDb.getItem(GetItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("cause_id", AttributeValue.fromS(causeId)))
+                    .consistentRead(true)
+                    .build()).item();
+            CauseTopCompaniesBoard board = board(item);
+            change.accept(board);
+            if (board.needsRebuild()) {
+                board.rebuild(queryTotals(causeId));
+            }
+            long version = item != null && item.containsKey("version") ? Long.parseLong(item.get("version").n()) : 0;
+            try {
+                save(causeId, board, version);
+                return;
+            } catch (ConditionalCheckFailedException e) {
+                if (attempt >= MAX_VERSION_CONFLICTS) {
+                    throw DynamoDbException.builder()
+                            .message("Leaderboard for " + causeId + " kept changing; gave up after " + attempt + " tries")
+                            .cause(e)
+                            .build();
+                }
+            }
+        }
+    }
+
+    /**
+     * Every company total of the cause, shard items merged, read with a paginated Query.
+     */
+    List<LeaderboardEntry> queryTotals(String causeId) {
+        Map<String, LeaderboardEntry> totals = new HashMap<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            QueryResponse page = dynamoDb.query(QueryRequest.builder()
+                    .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                    .keyConditionExpression("cause_id = :cause_id")
+                    .expressionAttributeValues(Map.of(":cause_id", AttributeValue.fromS(causeId)))
+                    .projectionExpression("company_id, company_name, boycott_count, shard_of")
+                    .exclusiveStartKey(startKey)
+                    .build());
+            for (Map<String, AttributeValue> item : page.items()) {
+                String companyId = ShardedCounter.baseCompanyId(item);
+                AttributeValue name = item.get("company_name");
+                LeaderboardEntry total = totals.computeIfAbsent(companyId,
+                        id -> new LeaderboardEntry(id, null, 0));
+                total.setBoycott_count(total.getBoycott_count() + CauseCompanyStatsReader.count(item));
+                if (name != null && total.getCompany_name() == null) {
+                    total.setCompany_name(name.s());
+                }
+            }
+            startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+        } while (startKey != null);
+        return new ArrayList<>(totals.values());
+    }
+
+    private void save(String causeId, CauseTopCompaniesBoard board, long version) {
+        List<AttributeValue> entries = new ArrayList<>();
+        for (LeaderboardEntry entry : board.entries()) {
+            Map<String, AttributeValue> value = new HashMap<>();
+            value.put("company_id", AttributeValue.fromS(entry.getCompany_id()));
+            value.put("boycott_count", AttributeValue.fromN(Long.toString(entry.getBoycott_count())));
+            if (entry.getCompany_name() != null) {
+                value.put("company_name", AttributeValue.fromS(entry.getCompany_name()));
+            }
+            entries.add(AttributeValue.fromM(value));
+        }
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "cause_id", AttributeValue.fromS(causeId),
+                        "entries", AttributeValue.fromL(entries),
+                        "floor", AttributeValue.fromN(Long.toString(board.getFloor())),
+                        "version", AttributeValue.fromN(Long.toString(version + 1))))
+                .conditionExpression(version == 0 ? "attribute_not_exists(cause_id)" : "version = :version")
+                .expressionAttributeValues(version == 0 ? null
+                        : Map.of(":version", AttributeValue.fromN(Long.toString(version))))
+                .build());
+    }
+
+    private CauseTopCompaniesBoard board(Map<String, AttributeValue> item) {
+        if (item == null || item.isEmpty()) {
+            return new CauseTopCompaniesBoard(size);
+        }
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        if (item.containsKey("entries")) {
+            for (AttributeValue value : item.get("entries").l()) {
+                Map<String, AttributeValue> entry = value.m();
+                AttributeValue name = entry.get("company_name");
+                entries.add(new LeaderboardEntry(entry.get("company_id").s(), name != null ? name.s() : null,
+                        Long.parseLong(entry.get("boycott_count").n())));
+            }
+        }
+        long floor = item.containsKey("floor") ? Long.parseLong(item.get("floor").n()) : 0;
+        return new CauseTopCompaniesBoard(size, entries, floor);
+    }
+}
@@ -0,0 +1,120 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.boycottpro.utilities.Logger;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes the NEW_AND_OLD_IMAGES stream of cause_company_stats and keeps the per-cause
+ * leaderboard in {@link CauseTopCompaniesStore} current. Only the latest total of each company in
+ * a batch is applied; totals of sharded pairs are re-read across all shards. A cause that fails
+ * reports its first record so the stream retries from there.
+ */
+public class CauseTopCompaniesStreamHandler implements RequestHandler<DynamodbEvent, StreamsEventResponse> {
+
+    private final CauseTopCompaniesStore store;
+    private final CauseCompanyStatsReader reader;
+    private final ShardedCounter shards;
+
+    public CauseTopCompaniesStreamHandler() {
+        this(DynamoDbClient.create(), HandlerConfig.fromEnvironment());
+    }
+
+    public CauseTopCompaniesStreamHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, null);
+    }
+
+    public CauseTopCompaniesStreamHandler(DynamoDbClient dynamoDb, HandlerConfig config) {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        this.shards = settings.shardedCounter();
+        this.store = CauseTopCompaniesStore.fromConfig(dynamoDb, settings);
+        this.reader = new CauseCompanyStatsReader(dynamoDb, shards);
+    }
+
+    @Override
+    public StreamsEventResponse handleRequest(DynamodbEvent event, Context context) {
+        Map<String, Map<String, CompanyTotal>> causes = new LinkedHashMap<>();
+        Map<String, String> firstSequenceNumbers = new LinkedHashMap<>();
+        List<DynamodbEvent.DynamodbStreamRecord> records = event != null && event.getRecords() != null
+                ? event.getRecords() : List.of();
+        for (DynamodbEvent.DynamodbStreamRecord record : records) {
+            StreamRecord change = record.getDynamodb();
+            if (change == null || change.getKeys() == null) {
+                continue;
+            }
+            long newCount = count(change.getNewImage());
+            if ("MODIFY".equals(record.getEventName()) && newCount == count(change.getOldImage())) {
+                continue;
+            }
+            String causeId = change.getKeys().get("cause_id").getS();
+            String companyId = change.getKeys().get("company_id").getS();
+            String baseCompanyId = baseCompanyId(companyId, change.getNewImage());
+            firstSequenceNumbers.putIfAbsent(causeId, change.getSequenceNumber());
+            CompanyTotal total = causes.computeIfAbsent(causeId, id -> new LinkedHashMap<>())
+                    .computeIfAbsent(baseCompanyId, id -> new CompanyTotal());
+            total.total = newCount;
+            total.sharded |= !baseCompanyId.equals(companyId) || shards.shardCount(causeId, baseCompanyId) > 1
+                    || recordedShardCount(change.getNewImage()) > 1;
+            AttributeValue name = change.getNewImage() != null ? change.getNewImage().get("company_name") : null;
+            if (name != null && name.getS() != null) {
+                total.companyName = name.getS();
+            }
+        }
+
+        List<StreamsEventResponse.BatchItemFailure> failures = new ArrayList<>();
+        for (Map.Entry<String, Map<String, CompanyTotal>> cause : causes.entrySet()) {
+            try {
+                apply(cause.getKey(), cause.getValue());
+            } catch (RuntimeException e) {
+                Logger.error(79, null, "leaderboard update for " + cause.getKey() + " failed: " + e.getMessage());
+                failures.add(new StreamsEventResponse.BatchItemFailure(firstSequenceNumbers.get(cause.getKey())));
+            }
+        }
+        return new StreamsEventResponse(failures);
+    }
+
+    private void apply(String causeId, Map<String, CompanyTotal> totals) {
+        for (Map.Entry<String, CompanyTotal> total : totals.entrySet()) {
+            if (total.getValue().sharded) {
+                total.getValue().total = reader.readCount(causeId, total.getKey());
+            }
+        }
+        store.update(causeId, board -> {
+            for (Map.Entry<String, CompanyTotal> total : totals.entrySet()) {
+                board.apply(total.getKey(), total.getValue().companyName, total.getValue().total);
+            }
+        });
+    }
+
+    private static String baseCompanyId(String companyId, Map<String, AttributeValue> image) {
+        AttributeValue shardOf = image != null ? image.get(ShardedCounter.SHARD_OF_ATTRIBUTE) : null;
+        return shardOf != null && shardOf.getS() != null ? shardOf.getS() : ShardedCounter.baseCompanyId(companyId);
+    }
+
+    // A pair once written with more shards than now configured still has counts in all of them.
+    private static int recordedShardCount(Map<String, AttributeValue> image) {
+        AttributeValue recorded = image != null ? image.get(ShardedCounter.SHARD_COUNT_ATTRIBUTE) : null;
+        return recorded != null && recorded.getN() != null ? Integer.parseInt(recorded.getN()) : 1;
+    }
+
+    private static long count(Map<String, AttributeValue> image) {
+        AttributeValue count = image != null ? image.get("boycott_count") : null;
+        return count != null && count.getN() != null ? Long.parseLong(count.getN()) : 0L;
+    }
+
+    private static final class CompanyTotal {
+        private long total;
+        private boolean sharded;
+        private String companyName;
+    }
+}
@@ -0,0 +1,110 @@
+package com.boycottpro.causecompanystats;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sums deltas for the same cause/company pair that arrive within a short window and
+ * writes them as a single update. The first caller for a key waits out the window and
+ * flushes; every caller that joined the window gets the outcome of that one write.
+ */
+public class CoalescingWriteBuffer {
+
+    public interface Writer {
+        void write(String causeId, String companyId, int delta, String causeDesc, String companyName);
+    }
+
+    private final long windowMillis;
+    private final Map<String, PendingWrite> pending = new HashMap<>();
+
+    public CoalescingWriteBuffer(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive.");
+        }
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean submit(String causeId, String companyId, int delta, String causeDesc, String companyName,
+                          Writer writer) {
+        String key = causeId + "#" + companyId;
+        PendingWrite write;
+        boolean leader = false;
+        synchronized (pending) {
+            write = pending.get(key);
+            if (write == null) {
+                write = new PendingWrite(causeId, companyId);
+                pending.put(key, write);
+                leader = true;
+            }
+            write.add(delta, causeDesc, companyName);
+        }
+        if (leader) {
+            waitForWindow();
+            synchronized (pending) {
+                pending.remove(key);
+            }
+            write.flush(writer);
+        }
+        return write.await();
+    }
+
+    public int pendingKeys() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void waitForWindow() {
+        try {
+            Thread.sleep(windowMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PendingWrite {
+        private final String causeId;
+        private final String companyId;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private int delta;
+        private String causeDesc;
+        private String companyName;
+
+        PendingWrite(String causeId, String companyId) {
+            this.causeId = causeId;
+            this.companyId = companyId;
+        }
+
+        void add(int adjustment, String desc, String name) {
+            delta += adjustment;
+            if (causeDesc == null && desc != null && name != null) {
+                causeDesc = desc;
+                companyName = name;
+            }
+        }
+
+        void flush(Writer writer) {
+            try {
+                if (delta != 0 || causeDesc != null) {
+                    writer.write(causeId, companyId, delta, causeDesc, companyName);
+                }
+                result.complete(true);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        boolean await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.boycottpro.causecompanystats.model.CauseCompanyCount;
+import com.boycottpro.models.ResponseMessage;
+import com.boycottpro.utilities.JwtUtility;
+import com.boycottpro.utilities.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Returns boycott counts for one cause/company pair ({@code /{cause_id}/{company_id}}) or for many
+ * companies of a cause ({@code /{cause_id}?company_ids=a,b,c}). Counts are served from the
+ * container's {@link CauseCompanyStatsCache}; misses are read together with chunked BatchGetItem.
+ */
+public class GetCauseCompanyStatsHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final Map<String, String> JSON_HEADERS = Map.of("Content-Type", "application/json");
+    static final int MAX_COMPANIES = 500;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CauseCompanyStatsReader reader;
+    private final CauseCompanyStatsCache cache;
+    private final MetricsLogger metricsLogger;
+
+    public GetCauseCompanyStatsHandler() {
+        this(DynamoDbClient.create(), HandlerConfig.fromEnvironment());
+    }
+
+    public GetCauseCompanyStatsHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, null);
+    }
+
+    public GetCauseCompanyStatsHandler(DynamoDbClient dynamoDb, HandlerConfig config) {
+        this(dynamoDb, config, null, null);
+    }
+
+    public GetCauseCompanyStatsHandler(DynamoDbClient dynamoDb, HandlerConfig config, MetricsLogger metricsLogger,
+                                       CauseCompanyStatsCache cache) {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        this.reader = new CauseCompanyStatsReader(dynamoDb, settings.shardedCounter());
+        this.cache = cache != null ? cache : CauseCompanyStatsCache.shared(settings);
+        this.metricsLogger = metricsLogger != null ? metricsLogger
+                : new MetricsLogger(System.out, settings.isMetricsEnabled());
+    }
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent event, Context context) {
+        String sub = null;
+        int lineNum = 59;
+        InvocationMetrics metrics = metricsLogger.start().dimension("Operation", "read");
+        try {
+            sub = JwtUtility.getSubFromRestEvent(event);
+            if (sub == null) {
+                Logger.error(64, sub, "user is Unauthorized");
+                return response(401, Map.of("message", "Unauthorized"));
+            }
+            lineNum = 67;
+            Map<String, String> pathParams = event.getPathParameters();
+            String causeId = pathParams != null ? pathParams.get("cause_id") : null;
+            String companyId = pathParams != null ? pathParams.get("company_id") : null;
+            List<String> companyIds = companyId != null ? List.of(companyId) : companyIds(event);
+            if (causeId == null || companyIds.isEmpty() || companyIds.size() > MAX_COMPANIES) {
+                Logger.error(73, sub, "cause_id and 1 to " + MAX_COMPANIES + " company ids are required");
+                metrics.increment("ValidationErrors");
+                return response(400, new ResponseMessage(400, "Missing cause_id or company_id",
+                        "Provide company_id in the path or 1 to " + MAX_COMPANIES + " ids in company_ids."));
+            }
+            lineNum = 78;
+            List<CauseCompanyCount> counts = readCounts(causeId, companyIds, metrics);
+            return companyId != null ? response(200, counts.get(0)) : response(200, Map.of("results", counts));
+
+        } catch (Exception e) {
+            Logger.error(lineNum, sub, e.getMessage());
+            return response(500, Map.of("error", "Unexpected server error: " + e.getMessage()));
+        } finally {
+            metrics.put("HandlerLatency", metrics.millisSinceStart(), InvocationMetrics.MILLISECONDS);
+            metricsLogger.publish(metrics);
+        }
+    }
+
+    private List<CauseCompanyCount> readCounts(String causeId, List<String> companyIds, InvocationMetrics metrics) {
+        List<CauseCompanyCount> counts = new ArrayList<>(companyIds.size());
+        List<String> missed = new ArrayList<>();
+        for (String companyId : companyIds) {
+            Long cached = cache.get(causeId, companyId);
+            if (cached == null) {
+                missed.add(companyId);
+            }
+            counts.add(new CauseCompanyCount(causeId, companyId, cached != null ? cached : 0L));
+        }
+        if (!missed.isEmpty()) {
+            long readStart = System.nanoTime();
+            Map<String, Long> read = reader.readCounts(causeId, missed);
+            metrics.put("BatchGetLatency", InvocationMetrics.millisSince(readStart), InvocationMetrics.MILLISECONDS);
+            for (CauseCompanyCount count : counts) {
+                Long fresh = read.get(count.getCompany_id());
+                if (fresh != null) {
+                    count.setBoycott_count(fresh);
+                    cache.put(causeId, count.getCompany_id(), fresh);
+                }
+            }
+        }
+        int hits = companyIds.size() - missed.size();
+        metrics.put("CacheHits", hits, InvocationMetrics.COUNT);
+        metrics.put("CacheMisses", missed.size(), InvocationMetrics.COUNT);
+        metrics.put("CacheHitRatio", 100.0 * hits / companyIds.size(),
+                InvocationMetrics.PERCENT);
+        return counts;
+    }
+
+    private static List<String> companyIds(APIGatewayProxyRequestEvent event) {
+        Map<String, String> query = event.getQueryStringParameters();
+        String value = query != null ? query.get("company_ids") : null;
+        if (value == null) {
+            return List.of();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : value.split(",")) {
+            if (!id.isBlank()) {
+                ids.add(id.trim());
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private APIGatewayProxyResponseEvent response(int status, Object body) {
+        String responseBody = null;
+        try {
+            responseBody = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(status)
+                .withHeaders(JSON_HEADERS)
+                .withBody(responseBody);
+    }
+}
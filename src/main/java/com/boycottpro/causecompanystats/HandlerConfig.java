@@ -0,0 +1,270 @@
+package com.boycottpro.causecompanystats;
+
+import java.util.Map;
+
+public class HandlerConfig {
+    private long coalesceWindowMillis;
+    private int batchWriteParallelism = 8;
+    private int counterShards = 1;
+    private Map<String, Integer> shardOverrides = Map.of();
+    private boolean asyncWrites;
+    private int asyncMaxConcurrency = 50;
+    private boolean metricsEnabled = true;
+    private String idempotencyTable = "cause_company_stats_idempotency";
+    private long idempotencyTtlSeconds = 86_400;
+    private int idempotencyCacheSize = 10_000;
+    private int throttleMaxAttempts = 4;
+    private long throttleBaseDelayMillis = 25;
+    private long throttleMaxDelayMillis = 1_000;
+    private long throttleSafetyMarginMillis = 250;
+    private long throttleDefaultBudgetMillis = 3_000;
+    private int hotKeyWritesPerSecond = 500;
+    private int statsCacheSize = 10_000;
+    private long statsCacheTtlMillis = 5_000;
+    private String leaderboardTable = "cause_top_companies";
+    private int leaderboardSize = 10;
+    private boolean rollupsEnabled;
+    private String rollupTable = "cause_company_stats_rollups";
+    private long hourlyRollupTtlDays = 14;
+    private int serverPort = 8080;
+    private int serverMaxConcurrency = 256;
+    private long serverDrainSeconds = 10;
+    private String reconcileSourceTable = "user_boycotts";
+    private int reconcileSegments = 16;
+    private long reconcileWritesPerSecond = 50;
+    private boolean reconcileDryRun;
+    private long serverDeregistrationDelaySeconds = 15;
+    private String reconcileSourceIndex = "cause_id-company_id-index";
+    private String serverAlbArn;
+
+    public HandlerConfig() {}
+
+    public static HandlerConfig fromEnvironment() {
+        HandlerConfig config = new HandlerConfig();
+        config.setCoalesceWindowMillis(longEnv("COALESCE_WINDOW_MS", 0L));
+        config.setBatchWriteParallelism((int) longEnv("BATCH_WRITE_PARALLELISM", 8L));
+        config.setCounterShards((int) longEnv("COUNTER_SHARDS", 1L));
+        config.setShardOverrides(ShardedCounter.parseOverrides(System.getenv("COUNTER_SHARD_OVERRIDES")));
+        config.setAsyncWrites(Boolean.parseBoolean(System.getenv("ASYNC_WRITES")));
+        config.setAsyncMaxConcurrency((int) longEnv("ASYNC_MAX_CONCURRENCY", 50L));
+        config.setMetricsEnabled(!"false".equalsIgnoreCase(System.getenv("METRICS_ENABLED")));
+        String idempotencyTable = System.getenv("IDEMPOTENCY_TABLE");
+        if (idempotencyTable != null && !idempotencyTable.isBlank()) {
+            config.setIdempotencyTable(idempotencyTable.trim());
+        }
+        config.setIdempotencyTtlSeconds(longEnv("IDEMPOTENCY_TTL_SECONDS", 86_400L));
+        config.setIdempotencyCacheSize((int) longEnv("IDEMPOTENCY_CACHE_SIZE", 10_000L));
+        config.setThrottleMaxAttempts((int) longEnv("THROTTLE_MAX_ATTEMPTS", 4L));
+        config.setThrottleBaseDelayMillis(longEnv("THROTTLE_BASE_DELAY_MS", 25L));
+        config.setThrottleMaxDelayMillis(longEnv("THROTTLE_MAX_DELAY_MS", 1_000L));
+        config.setThrottleSafetyMarginMillis(longEnv("THROTTLE_SAFETY_MARGIN_MS", 250L));
+        config.setThrottleDefaultBudgetMillis(longEnv("THROTTLE_DEFAULT_BUDGET_MS", 3_000L));
+        config.setHotKeyWritesPerSecond((int) longEnv("HOT_KEY_WRITES_PER_SECOND", 500L));
+        config.setStatsCacheSize((int) longEnv("STATS_CACHE_SIZE", 10_000L));
+        config.setStatsCacheTtlMillis(longEnv("STATS_CACHE_TTL_MS", 5_000L));
+        String leaderboardTable = System.getenv("LEADERBOARD_TABLE");
+        if (leaderboardTable != null && !leaderboardTable.isBlank()) {
+            config.setLeaderboardTable(leaderboardTable.trim());
+        }
+        config.setLeaderboardSize((int) longEnv("LEADERBOARD_SIZE", 10L));
+        config.setRollupsEnabled(Boolean.parseBoolean(System.getenv("ROLLUPS_ENABLED")));
+        String rollupTable = System.getenv("ROLLUP_TABLE");
+        if (rollupTable != null && !rollupTable.isBlank()) {
+            config.setRollupTable(rollupTable.trim());
+        }
+        config.setHourlyRollupTtlDays(longEnv("HOURLY_ROLLUP_TTL_DAYS", 14L));
+        config.setServerPort((int) longEnv("SERVER_PORT", 8080L));
+        config.setServerMaxConcurrency((int) longEnv("SERVER_MAX_CONCURRENCY", 256L));
+        config.setServerDrainSeconds(longEnv("SERVER_DRAIN_SECONDS", 10L));
+        String reconcileSourceTable = System.getenv("RECONCILE_SOURCE_TABLE");
+        if (reconcileSourceTable != null && !reconcileSourceTable.isBlank()) {
+            config.setReconcileSourceTable(reconcileSourceTable.trim());
+        }
+        config.setReconcileSegments((int) longEnv("RECONCILE_SEGMENTS", 16L));
+        config.setReconcileWritesPerSecond(longEnv("RECONCILE_WRITES_PER_SECOND", 50L));
+        config.setReconcileDryRun(Boolean.parseBoolean(System.getenv("RECONCILE_DRY_RUN")));
+        config.setServerDeregistrationDelaySeconds(longEnv("SERVER_DEREGISTRATION_DELAY_SECONDS", 15L));
+        String reconcileSourceIndex = System.getenv("RECONCILE_SOURCE_INDEX");
+        if (reconcileSourceIndex != null && !reconcileSourceIndex.isBlank()) {
+            config.setReconcileSourceIndex(reconcileSourceIndex.trim());
+        }
+        String serverAlbArn = System.getenv("SERVER_ALB_ARN");
+        if (serverAlbArn != null && !serverAlbArn.isBlank()) {
+            config.setServerAlbArn(serverAlbArn.trim());
+        }
+        return config;
+    }
+
+    public ShardedCounter shardedCounter() {
+        return new ShardedCounter(counterShards, shardOverrides);
+    }
+
+    /**
+     * A HOT_KEY_WRITES_PER_SECOND of 0 turns the per-key limiter off; retries still apply.
+     */
+    public ThrottleRetryPolicy throttleRetryPolicy() {
+        HotKeyRateLimiter limiter = hotKeyWritesPerSecond > 0
+                ? new HotKeyRateLimiter(hotKeyWritesPerSecond, hotKeyWritesPerSecond, 10_000) : null;
+        return new ThrottleRetryPolicy(throttleMaxAttempts, throttleBaseDelayMillis, throttleMaxDelayMillis,
+                throttleSafetyMarginMillis, throttleDefaultBudgetMillis, limiter);
+    }
+
+    static long longEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Only the embedded server coalesces: the Lambda handlers serve one request per container at a
+     * time, so they ignore COALESCE_WINDOW_MS rather than sleep through a window nothing can join.
+     */
+    public long getCoalesceWindowMillis() { return coalesceWindowMillis; }
+    public void setCoalesceWindowMillis(long coalesceWindowMillis) { this.coalesceWindowMillis = coalesceWindowMillis; }
+
+    public int getBatchWriteParallelism() { return batchWriteParallelism; }
+    public void setBatchWriteParallelism(int batchWriteParallelism) {
+        this.batchWriteParallelism = Math.max(1, batchWriteParallelism);
+    }
+
+    public int getCounterShards() { return counterShards; }
+    public void setCounterShards(int counterShards) { this.counterShards = Math.max(1, counterShards); }
+
+    public Map<String, Integer> getShardOverrides() { return shardOverrides; }
+    public void setShardOverrides(Map<String, Integer> shardOverrides) {
+        this.shardOverrides = shardOverrides != null ? shardOverrides : Map.of();
+    }
+
+    public boolean isAsyncWrites() { return asyncWrites; }
+    public void setAsyncWrites(boolean asyncWrites) { this.asyncWrites = asyncWrites; }
+
+    public int getAsyncMaxConcurrency() { return asyncMaxConcurrency; }
+    public void setAsyncMaxConcurrency(int asyncMaxConcurrency) {
+        this.asyncMaxConcurrency = Math.max(1, asyncMaxConcurrency);
+    }
+
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public void setMetricsEnabled(boolean metricsEnabled) { this.metricsEnabled = metricsEnabled; }
+
+    public String getIdempotencyTable() { return idempotencyTable; }
+    public void setIdempotencyTable(String idempotencyTable) { this.idempotencyTable = idempotencyTable; }
+
+    public long getIdempotencyTtlSeconds() { return idempotencyTtlSeconds; }
+    public void setIdempotencyTtlSeconds(long idempotencyTtlSeconds) {
+        this.idempotencyTtlSeconds = Math.max(1, idempotencyTtlSeconds);
+    }
+
+    public int getIdempotencyCacheSize() { return idempotencyCacheSize; }
+    public void setIdempotencyCacheSize(int idempotencyCacheSize) {
+        this.idempotencyCacheSize = Math.max(1, idempotencyCacheSize);
+    }
+
+    public int getThrottleMaxAttempts() { return throttleMaxAttempts; }
+    public void setThrottleMaxAttempts(int throttleMaxAttempts) {
+        this.throttleMaxAttempts = Math.max(1, throttleMaxAttempts);
+    }
+
+    public long getThrottleBaseDelayMillis() { return throttleBaseDelayMillis; }
+    public void setThrottleBaseDelayMillis(long throttleBaseDelayMillis) {
+        this.throttleBaseDelayMillis = Math.max(1, throttleBaseDelayMillis);
+    }
+
+    public long getThrottleMaxDelayMillis() { return throttleMaxDelayMillis; }
+    public void setThrottleMaxDelayMillis(long throttleMaxDelayMillis) {
+        this.throttleMaxDelayMillis = Math.max(1, throttleMaxDelayMillis);
+    }
+
+    public long getThrottleSafetyMarginMillis() { return throttleSafetyMarginMillis; }
+    public void setThrottleSafetyMarginMillis(long throttleSafetyMarginMillis) {
+        this.throttleSafetyMarginMillis = Math.max(0, throttleSafetyMarginMillis);
+    }
+
+    public long getThrottleDefaultBudgetMillis() { return throttleDefaultBudgetMillis; }
+    public void setThrottleDefaultBudgetMillis(long throttleDefaultBudgetMillis) {
+        this.throttleDefaultBudgetMillis = Math.max(0, throttleDefaultBudgetMillis);
+    }
+
+    public int getHotKeyWritesPerSecond() { return hotKeyWritesPerSecond; }
+    public void setHotKeyWritesPerSecond(int hotKeyWritesPerSecond) {
+        this.hotKeyWritesPerSecond = Math.max(0, hotKeyWritesPerSecond);
+    }
+
+    public int getStatsCacheSize() { return statsCacheSize; }
+    public void setStatsCacheSize(int statsCacheSize) { this.statsCacheSize = Math.max(1, statsCacheSize); }
+
+    public long getStatsCacheTtlMillis() { return statsCacheTtlMillis; }
+    public void setStatsCacheTtlMillis(long statsCacheTtlMillis) {
+        this.statsCacheTtlMillis = Math.max(1, statsCacheTtlMillis);
+    }
+
+    public String getLeaderboardTable() { return leaderboardTable; }
+    public void setLeaderboardTable(String leaderboardTable) { this.leaderboardTable = leaderboardTable; }
+
+    public int getLeaderboardSize() { return leaderboardSize; }
+    public void setLeaderboardSize(int leaderboardSize) { this.leaderboardSize = Math.max(1, leaderboardSize); }
+
+    public boolean isRollupsEnabled() { return rollupsEnabled; }
+    public void setRollupsEnabled(boolean rollupsEnabled) { this.rollupsEnabled = rollupsEnabled; }
+
+    public String getRollupTable() { return rollupTable; }
+    public void setRollupTable(String rollupTable) { this.rollupTable = rollupTable; }
+
+    public long getHourlyRollupTtlDays() { return hourlyRollupTtlDays; }
+    public void setHourlyRollupTtlDays(long hourlyRollupTtlDays) {
+        this.hourlyRollupTtlDays = Math.max(1, hourlyRollupTtlDays);
+    }
+
+    public int getServerPort() { return serverPort; }
+    public void setServerPort(int serverPort) { this.serverPort = Math.max(0, serverPort); }
+
+    public int getServerMaxConcurrency() { return serverMaxConcurrency; }
+    public void setServerMaxConcurrency(int serverMaxConcurrency) {
+        this.serverMaxConcurrency = Math.max(1, serverMaxConcurrency);
+    }
+
+    public long getServerDrainSeconds() { return serverDrainSeconds; }
+    public void setServerDrainSeconds(long serverDrainSeconds) { this.serverDrainSeconds = Math.max(0, serverDrainSeconds); }
+
+    public String getReconcileSourceTable() { return reconcileSourceTable; }
+    public void setReconcileSourceTable(String reconcileSourceTable) { this.reconcileSourceTable = reconcileSourceTable; }
+
+    public int getReconcileSegments() { return reconcileSegments; }
+    public void setReconcileSegments(int reconcileSegments) { this.reconcileSegments = Math.max(1, reconcileSegments); }
+
+    public long getReconcileWritesPerSecond() { return reconcileWritesPerSecond; }
+    public void setReconcileWritesPerSecond(long reconcileWritesPerSecond) {
+        this.reconcileWritesPerSecond = Math.max(1, reconcileWritesPerSecond);
+    }
+
+    public boolean isReconcileDryRun() { return reconcileDryRun; }
+    public void setReconcileDryRun(boolean reconcileDryRun) { this.reconcileDryRun = reconcileDryRun; }
+
+    /**
+     * How long the server keeps serving after its health check starts failing, so the load
+     * balancer marks it unhealthy before it stops accepting connections.
+     */
+    public long getServerDeregistrationDelaySeconds() { return serverDeregistrationDelaySeconds; }
+    public void setServerDeregistrationDelaySeconds(long serverDeregistrationDelaySeconds) {
+        this.serverDeregistrationDelaySeconds = Math.max(0, serverDeregistrationDelaySeconds);
+    }
+
+    /**
+     * A GSI on the source table with cause_id as partition key and company_id as sort key; the
+     * reconciler queries it to recount a pair just before correcting it.
+     */
+    public String getReconcileSourceIndex() { return reconcileSourceIndex; }
+    public void setReconcileSourceIndex(String reconcileSourceIndex) { this.reconcileSourceIndex = reconcileSourceIndex; }
+
+    /**
+     * The load balancer whose signed x-amzn-oidc-data the server accepts; the server will not
+     * start without it.
+     */
+    public String getServerAlbArn() { return serverAlbArn; }
+    public void setServerAlbArn(String serverAlbArn) { this.serverAlbArn = serverAlbArn; }
+}
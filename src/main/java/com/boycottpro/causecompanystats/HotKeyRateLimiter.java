@@ -0,0 +1,94 @@
+package com.boycottpro.causecompanystats;
+
+/**
+ * Token bucket per item key, kept in the container for up to a minute. Cold keys never run out
+ * of tokens; a hot key is smoothed to its current rate. The rate adapts additive-increase /
+ * multiplicative-decrease: halved on every throttle, raised a tenth of the ceiling per success.
+ */
+public class HotKeyRateLimiter {
+
+    private static final long BUCKET_IDLE_MILLIS = 60_000;
+    private final double maxRatePerSecond;
+    private final double minRatePerSecond;
+    private final double burst;
+    private final TtlCache<String, TokenBucket> buckets;
+
+    public HotKeyRateLimiter(double maxRatePerSecond, double burst, int maxKeys) {
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.minRatePerSecond = Math.max(1.0, maxRatePerSecond / 64);
+        this.burst = Math.max(1.0, burst);
+        this.buckets = new TtlCache<>(maxKeys, BUCKET_IDLE_MILLIS);
+    }
+
+    /**
+     * Takes one token for the key, waiting for it if need be. Returns false without waiting when
+     * the token would not arrive before the deadline.
+     */
+    public boolean acquire(String key, long deadlineNanos) {
+        TokenBucket bucket = bucket(key);
+        long waitNanos;
+        synchronized (bucket) {
+            waitNanos = bucket.reserve(System.nanoTime(), deadlineNanos);
+        }
+        if (waitNanos < 0) {
+            return false;
+        }
+        ThrottleRetryPolicy.sleep(waitNanos / 1_000_000L);
+        return true;
+    }
+
+    public void onThrottle(String key) {
+        TokenBucket bucket = bucket(key);
+        synchronized (bucket) {
+            bucket.ratePerSecond = Math.max(minRatePerSecond, bucket.ratePerSecond / 2);
+        }
+    }
+
+    public void onSuccess(String key) {
+        TokenBucket bucket = bucket(key);
+        synchronized (bucket) {
+            bucket.ratePerSecond = Math.min(maxRatePerSecond, bucket.ratePerSecond + maxRatePerSecond / 10);
+        }
+    }
+
+    public double currentRate(String key) {
+        TokenBucket bucket = bucket(key);
+        synchronized (bucket) {
+            return bucket.ratePerSecond;
+        }
+    }
+
+    private TokenBucket bucket(String key) {
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(maxRatePerSecond, burst, System.nanoTime()));
+    }
+
+    private static final class TokenBucket {
+        private final double capacity;
+        private double ratePerSecond;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double ratePerSecond, double capacity, long now) {
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        // Returns how long to wait for the reserved token, or -1 if it would arrive after the deadline.
+        private long reserve(long now, long deadlineNanos) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / 1e9 * ratePerSecond);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long waitNanos = (long) Math.ceil((1 - tokens) / ratePerSecond * 1e9);
+            if (now + waitNanos > deadlineNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return waitNanos;
+        }
+    }
+}
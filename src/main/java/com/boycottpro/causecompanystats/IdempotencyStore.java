@@ -0,0 +1,164 @@
+package com.boycottpro.causecompanystats;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+/**
+ * Remembers idempotency keys that have already been applied. A key is claimed before the counter
+ * write with a conditional put of an IN_PROGRESS record to a dedupe table, flipped to COMPLETED
+ * once the write succeeds, and deleted if it fails. The IN_PROGRESS record's {@code expires_at}
+ * is a lease that ends shortly after the claiming request's own deadline, so a request that dies
+ * between claim and write blocks retries only until then; a COMPLETED record lives for the
+ * dedupe TTL, and {@code expires_at} is also the table's TTL attribute. A warm container answers
+ * keys it knows to be COMPLETED from its own {@link TtlCache}.
+ */
+public class IdempotencyStore {
+
+    /**
+     * Outcome of {@link #claim}: the caller owns the key and must write, the key was already
+     * applied, or another request holding the key has not finished yet.
+     */
+    public enum Claim {
+        CLAIMED,
+        COMPLETED,
+        IN_PROGRESS
+    }
+
+    static final String KEY_ATTRIBUTE = "idempotency_key";
+    static final String EXPIRES_AT_ATTRIBUTE = "expires_at";
+    static final String STATUS_ATTRIBUTE = "status";
+    static final String IN_PROGRESS = "IN_PROGRESS";
+    static final String COMPLETED = "COMPLETED";
+    static final int MAX_KEY_LENGTH = 255;
+    private static final long LEASE_MARGIN_SECONDS = 5;
+    private static final String CLAIM_CONDITION = "attribute_not_exists(idempotency_key) OR expires_at < :now";
+    private static final String COMPLETE_EXPRESSION = "SET #status = :completed, expires_at = :expires_at";
+    private static final String RELEASE_CONDITION = "#status = :in_progress AND expires_at = :lease";
+
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final long ttlSeconds;
+    private final TtlCache<String, Boolean> applied;
+
+    public IdempotencyStore(DynamoDbClient dynamoDb, String tableName, long ttlSeconds, int cacheSize) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.ttlSeconds = ttlSeconds;
+        this.applied = new TtlCache<>(cacheSize, ttlSeconds * 1000L);
+    }
+
+    public static IdempotencyStore fromConfig(DynamoDbClient dynamoDb, HandlerConfig config) {
+        return new IdempotencyStore(dynamoDb, config.getIdempotencyTable(), config.getIdempotencyTtlSeconds(),
+                config.getIdempotencyCacheSize());
+    }
+
+    /**
+     * Keys are scoped to the caller and to the counter and direction the request writes, so one
+     * user's key can never suppress another user's request, and a key reused for a different
+     * cause, company or direction is applied rather than answered from the first request.
+     */
+    static String scopedKey(String sub, String causeId, String companyId, boolean increment,
+                            String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("idempotency key must be at most " + MAX_KEY_LENGTH + " characters.");
+        }
+        return sub + "#" + causeId + "#" + companyId + "#" + (increment ? "increment" : "decrement")
+                + "#" + idempotencyKey.trim();
+    }
+
+    /**
+     * The {@code expires_at} (epoch seconds) of a claim made by a caller that may still write until
+     * deadlineNanos (a System.nanoTime() value): the deadline plus a small margin. The same value
+     * is passed to {@link #claim} and, if the write fails, to {@link #release}.
+     */
+    public long lease(long deadlineNanos) {
+        long now = System.currentTimeMillis() / 1000L;
+        return now + Math.max(0, deadlineNanos - System.nanoTime()) / 1_000_000_000L + LEASE_MARGIN_SECONDS;
+    }
+
+    public boolean seen(String key) {
+        return applied.get(key) != null;
+    }
+
+    /**
+     * Records the key as IN_PROGRESS until {@code lease} before the counter is written. Only
+     * CLAIMED lets the caller write.
+     */
+    public Claim claim(String key, long lease) {
+        if (seen(key)) {
+            return Claim.COMPLETED;
+        }
+        long now = System.currentTimeMillis() / 1000L;
+        try {
+            dynamoDb.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(Map.of(
+                            KEY_ATTRIBUTE, AttributeValue.fromS(key),
+                            STATUS_ATTRIBUTE, AttributeValue.fromS(IN_PROGRESS),
+                            EXPIRES_AT_ATTRIBUTE, AttributeValue.fromN(String.valueOf(lease))))
+                    .conditionExpression(CLAIM_CONDITION)
+                    .expressionAttributeValues(Map.of(":now", AttributeValue.fromN(String.valueOf(now))))
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build());
+            return Claim.CLAIMED;
+        } catch (ConditionalCheckFailedException e) {
+            AttributeValue status = e.hasItem() ? e.item().get(STATUS_ATTRIBUTE) : null;
+            // Records written before keys had a status were only ever left behind by applied writes.
+            if (e.hasItem() && (status == null || COMPLETED.equals(status.s()))) {
+                applied.put(key, Boolean.TRUE);
+                return Claim.COMPLETED;
+            }
+            return Claim.IN_PROGRESS;
+        }
+    }
+
+    /**
+     * Marks the key COMPLETED after the counter write succeeded; from here on retries are
+     * answered as duplicates for the full TTL.
+     */
+    public void completed(String key) {
+        long now = System.currentTimeMillis() / 1000L;
+        dynamoDb.updateItem(UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(KEY_ATTRIBUTE, AttributeValue.fromS(key)))
+                .updateExpression(COMPLETE_EXPRESSION)
+                .expressionAttributeNames(Map.of("#status", STATUS_ATTRIBUTE))
+                .expressionAttributeValues(Map.of(
+                        ":completed", AttributeValue.fromS(COMPLETED),
+                        ":expires_at", AttributeValue.fromN(String.valueOf(now + ttlSeconds))))
+                .build());
+        applied.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Gives the key back after a failed counter write so the client's retry is applied. Only the
+     * caller's own claim is deleted: once its lease has run out another request may have claimed
+     * the key, and that record is left alone.
+     */
+    public void release(String key, long lease) {
+        applied.invalidate(key);
+        try {
+            dynamoDb.deleteItem(DeleteItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of(KEY_ATTRIBUTE, AttributeValue.fromS(key)))
+                    .conditionExpression(RELEASE_CONDITION)
+                    .expressionAttributeNames(Map.of("#status", STATUS_ATTRIBUTE))
+                    .expressionAttributeValues(Map.of(
+                            ":in_progress", AttributeValue.fromS(IN_PROGRESS),
+                            ":lease", AttributeValue.fromN(String.valueOf(lease))))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // The claim is gone or belongs to a newer request.
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.boycottpro.causecompanystats.model.IncrementForm;
+import com.boycottpro.models.ResponseMessage;
+import com.boycottpro.utilities.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.Map;
+
+/**
+ * The increment request path independent of how the request arrived: caller identity, path
+ * parameter and body validation, idempotency, the counter update and its metrics. Each entry
+ * point (REST API, HTTP API, the embedded server) only maps its event to these inputs and the
+ * {@link Response} back to its own response type.
+ */
+public class IncrementCauseCompanyStatsCore {
+
+    static final Map<String, String> JSON_HEADERS = Map.of("Content-Type", "application/json");
+    private static final Map<String, String> RETRY_LATER_HEADERS = Map.of("Content-Type", "application/json",
+            "Retry-After", "1");
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final String PRIMING_ID = "snapstart-priming";
+    private static final String PRIMING_BODY =
+            "{\"company_name\":\"priming\",\"cause_desc\":\"priming\",\"increment\":true}";
+
+    /**
+     * Resolves the caller's sub from the event; runs inside the request's error handling.
+     */
+    public interface SubResolver {
+        String resolve() throws Exception;
+    }
+
+    /**
+     * Status, headers and JSON body of a response, before conversion to an event type.
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final Map<String, String> headers;
+        private final String body;
+
+        Response(int statusCode, Map<String, String> headers, String body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() { return statusCode; }
+        public Map<String, String> getHeaders() { return headers; }
+        public String getBody() { return body; }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IncrementFormCodec formCodec = new IncrementFormCodec(objectMapper);
+    private final String recordUpdatedBody = json(Map.of("recordUpdated", true));
+    private final String unauthorizedBody = json(Map.of("message", "Unauthorized"));
+    private final String invalidPathBody = json(new ResponseMessage(400,
+            "Missing cause_id or company_id", "Invalid path parameters."));
+    private final String throttledBody = json(new ResponseMessage(503,
+            "Too many updates, please retry shortly", "Write throughput exceeded."));
+    private final String inProgressBody = json(new ResponseMessage(409,
+            "A request with this idempotency key is still in progress, please retry shortly",
+            "Idempotency key in use."));
+    private final DynamoDbClient dynamoDb;
+    private final CauseCompanyStatsUpdater updater;
+    private final CoalescingWriteBuffer writeBuffer;
+    private final MetricsLogger metricsLogger;
+    private final IdempotencyStore idempotencyStore;
+    private final CauseCompanyStatsCache statsCache;
+
+    public IncrementCauseCompanyStatsCore(DynamoDbClient dynamoDb, HandlerConfig config,
+                                          MetricsLogger metricsLogger, CauseCompanyStatsCache statsCache) {
+        this(dynamoDb, config, metricsLogger, statsCache, false);
+    }
+
+    /**
+     * concurrentRequests is true only for hosts that run several requests through this core at
+     * once (the embedded server). A Lambda container handles one invocation at a time, so a
+     * coalescing window there would never merge two requests and would only delay each write;
+     * COALESCE_WINDOW_MS is ignored unless concurrentRequests is set.
+     */
+    IncrementCauseCompanyStatsCore(DynamoDbClient dynamoDb, HandlerConfig config, MetricsLogger metricsLogger,
+                                   CauseCompanyStatsCache statsCache, boolean concurrentRequests) {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        this.dynamoDb = dynamoDb;
+        this.updater = CauseCompanyStatsUpdater.fromConfig(dynamoDb, settings);
+        this.writeBuffer = concurrentRequests && settings.getCoalesceWindowMillis() > 0
+                ? new CoalescingWriteBuffer(settings.getCoalesceWindowMillis()) : null;
+        this.metricsLogger = metricsLogger != null ? metricsLogger
+                : new MetricsLogger(System.out, settings.isMetricsEnabled());
+        this.idempotencyStore = IdempotencyStore.fromConfig(dynamoDb, settings);
+        this.statsCache = statsCache != null ? statsCache : CauseCompanyStatsCache.shared(settings);
+    }
+
+    /**
+     * The JWT sub from an authorizer's claims map, or null when it is missing or blank.
+     */
+    public static String subFromClaims(Map<String, ?> claims) {
+        Object sub = claims != null ? claims.get("sub") : null;
+        return sub instanceof String && !((String) sub).isBlank() ? (String) sub : null;
+    }
+
+    /**
+     * Runs form parsing (streaming and databind fallback), response serialization and
+     * UpdateItemRequest construction without writing, so none of it is paid on the first request.
+     */
+    void prime() throws Exception {
+        IncrementForm form = formCodec.read(PRIMING_BODY);
+        objectMapper.readValue(PRIMING_BODY, IncrementForm.class);
+        CauseCompanyStatsUpdater.buildRequest(PRIMING_ID, PRIMING_ID, 1, form.getCause_desc(),
+                form.getCompany_name());
+        json(Map.of("error", "Unexpected server error: priming"));
+    }
+
+    /**
+     * Opens (or after a restore, re-opens) the pooled HTTPS connection with a read of a key that
+     * never exists. Failures are ignored; the first real request will connect instead.
+     */
+    void primeConnection() {
+        try {
+            dynamoDb.getItem(GetItemRequest.builder()
+                    .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                    .key(Map.of(
+                            "cause_id", AttributeValue.fromS(PRIMING_ID),
+                            "company_id", AttributeValue.fromS(PRIMING_ID)))
+                    .build());
+        } catch (RuntimeException e) {
+            Logger.error(133, null, "connection priming failed: " + e.getMessage());
+        }
+    }
+
+    public Response handle(SubResolver subResolver, Map<String, String> pathParams, Map<String, String> headers,
+                           String body, Context context) {
+        String sub = null;
+        int lineNum = 140;
+        InvocationMetrics metrics = metricsLogger.start()
+                .dimension("Cause", "unknown")
+                .dimension("Direction", "unknown");
+        try {
+            sub = subResolver.resolve();
+            if (sub == null) {
+            Logger.error(147, sub, "user is Unauthorized");
+            return cached(401, unauthorizedBody);
+            }
+            lineNum = 150;
+            String causeId = pathParams != null ? pathParams.get("cause_id") : null;
+            String companyId = pathParams != null ? pathParams.get("company_id") : null;
+            if (causeId == null || companyId == null) {
+                String errorMessage = "";
+                if(causeId == null && companyId == null) {
+                    errorMessage = "cause_id and company_id not present";
+                } else {
+                    if(causeId == null) {
+                        errorMessage = "cause_id not present";
+                    } else {
+                        errorMessage = "company_id not present";
+                    }
+                }
+                Logger.error(164, sub, errorMessage);
+                metrics.increment("ValidationErrors");
+                lineNum = 166;
+                return cached(400, invalidPathBody);
+            }
+            lineNum = 169;
+            metrics.dimension("Cause", causeId);
+            long parseStart = System.nanoTime();
+            IncrementForm form = formCodec.read(body);
+            metrics.put("ParseTime", InvocationMetrics.millisSince(parseStart), InvocationMetrics.MILLISECONDS);
+            metrics.dimension("Direction", form.isIncrement() ? "increment" : "decrement");
+            CauseCompanyStatsUpdater.validate(form.getCause_desc(), form.getCompany_name(), form.isIncrement());
+            String idempotencyKey = IdempotencyStore.scopedKey(sub, causeId, companyId, form.isIncrement(),
+                    idempotencyKey(headers, form));
+            long deadlineNanos = updater.getRetryPolicy().deadline(context);
+            long lease = idempotencyStore.lease(deadlineNanos);
+            if (idempotencyKey != null) {
+                IdempotencyStore.Claim claim = idempotencyStore.claim(idempotencyKey, lease);
+                if (claim == IdempotencyStore.Claim.COMPLETED) {
+                    metrics.increment("DuplicateRequests");
+                    return cached(200, recordUpdatedBody);
+                }
+                if (claim == IdempotencyStore.Claim.IN_PROGRESS) {
+                    metrics.increment("InProgressDuplicates");
+                    return new Response(409, RETRY_LATER_HEADERS, inProgressBody);
+                }
+            }
+            boolean updated;
+            try {
+                updated = incrementOrCreateCauseCompanyStatsRecord(causeId, companyId, form.getCause_desc(),
+                        form.getCompany_name(), form.isIncrement(), sub, metrics, deadlineNanos);
+            } catch (RuntimeException e) {
+                if (idempotencyKey != null) {
+                    releaseIdempotencyKey(idempotencyKey, lease, sub);
+                }
+                throw e;
+            }
+            if (idempotencyKey != null) {
+                completeIdempotencyKey(idempotencyKey, sub);
+            }
+            lineNum = 204;
+            return updated ? cached(200, recordUpdatedBody) : serialized(200, Map.of("recordUpdated", false));
+
+        } catch (Exception e) {
+            Logger.error(lineNum, sub, e.getMessage());
+            recordFailure(metrics, e);
+            if (ThrottleRetryPolicy.isThrottle(e)) {
+                return new Response(503, RETRY_LATER_HEADERS, throttledBody);
+            }
+            return serialized(500, Map.of("error", "Unexpected server error: " + e.getMessage()));
+        } finally {
+            metrics.put("HandlerLatency", metrics.millisSinceStart(), InvocationMetrics.MILLISECONDS);
+            metricsLogger.publish(metrics);
+        }
+    }
+
+    private static String idempotencyKey(Map<String, String> headers, IncrementForm form) {
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (IDEMPOTENCY_HEADER.equalsIgnoreCase(header.getKey())) {
+                    return header.getValue();
+                }
+            }
+        }
+        return form.getIdempotency_key();
+    }
+
+    // The counter write already succeeded; a retry after the lease runs out would apply it again.
+    private void completeIdempotencyKey(String idempotencyKey, String sub) {
+        try {
+            idempotencyStore.completed(idempotencyKey);
+        } catch (RuntimeException e) {
+            Logger.error(236, sub, "failed to mark idempotency key completed: " + e.getMessage());
+        }
+    }
+
+    private void releaseIdempotencyKey(String idempotencyKey, long lease, String sub) {
+        try {
+            idempotencyStore.release(idempotencyKey, lease);
+        } catch (RuntimeException e) {
+            Logger.error(244, sub, "failed to release idempotency key: " + e.getMessage());
+        }
+    }
+
+    private void recordFailure(InvocationMetrics metrics, Exception e) {
+        if (ThrottleRetryPolicy.isThrottle(e)) {
+            metrics.increment("ThrottlingErrors");
+        } else if (e instanceof IllegalArgumentException || e instanceof JsonProcessingException) {
+            metrics.increment("ValidationErrors");
+        }
+    }
+
+    static Response cached(int status, String body) {
+        return new Response(status, JSON_HEADERS, body);
+    }
+
+    Response serialized(int status, Object body) {
+        return new Response(status, JSON_HEADERS, json(body));
+    }
+
+    String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean incrementOrCreateCauseCompanyStatsRecord(String causeId, String companyId, String causeDesc,
+                                                             String companyName, boolean increment, String sub,
+                                                             InvocationMetrics metrics, long deadlineNanos) {
+        int adjustment = increment ? 1 : -1;
+        String desc = increment ? causeDesc : null;
+        String name = increment ? companyName : null;
+        long updateStart = System.nanoTime();
+        if (writeBuffer != null) {
+            boolean updated = writeBuffer.submit(causeId, companyId, adjustment, desc, name, updater::apply);
+            metrics.put("UpdateItemLatency", InvocationMetrics.millisSince(updateStart), InvocationMetrics.MILLISECONDS);
+            statsCache.invalidate(causeId, companyId);
+            return updated;
+        }
+        UpdateItemResponse response = updater.apply(causeId, companyId, adjustment, desc, name, sub, deadlineNanos);
+        metrics.put("UpdateItemLatency", InvocationMetrics.millisSince(updateStart), InvocationMetrics.MILLISECONDS);
+        if (response != null && response.consumedCapacity() != null
+                && response.consumedCapacity().capacityUnits() != null) {
+            metrics.put("ConsumedWriteCapacity", response.consumedCapacity().capacityUnits(), InvocationMetrics.NONE);
+        }
+        refreshCachedCount(causeId, companyId, response);
+        return true;
+    }
+
+    // The returned count is the pair's total only when it is not sharded; otherwise drop the entry.
+    private void refreshCachedCount(String causeId, String companyId, UpdateItemResponse response) {
+        AttributeValue count = response != null && response.hasAttributes()
+                ? response.attributes().get("boycott_count") : null;
+        if (count != null && count.n() != null && updater.isSingleItem(causeId, companyId)) {
+            statsCache.put(causeId, companyId, Long.parseLong(count.n()));
+        } else {
+            statsCache.invalidate(causeId, companyId);
+        }
+    }
+}
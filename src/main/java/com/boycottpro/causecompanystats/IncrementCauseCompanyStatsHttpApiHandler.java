@@ -0,0 +1,88 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.boycottpro.utilities.Logger;
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * HTTP API (payload v2) entry point. The caller's sub comes from the JWT authorizer's claims in
+ * the request context; everything after that is shared with the REST API handler through
+ * {@link IncrementCauseCompanyStatsCore}.
+ */
+public class IncrementCauseCompanyStatsHttpApiHandler
+        implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse>, Resource {
+
+    private final IncrementCauseCompanyStatsCore core;
+
+    public IncrementCauseCompanyStatsHttpApiHandler() {
+        this(CauseCompanyStatsUpdater.createClient(), HandlerConfig.fromEnvironment());
+        Core.getGlobalContext().register(this);
+    }
+
+    public IncrementCauseCompanyStatsHttpApiHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, null);
+    }
+
+    public IncrementCauseCompanyStatsHttpApiHandler(DynamoDbClient dynamoDb, HandlerConfig config) {
+        this(dynamoDb, config, null, null);
+    }
+
+    public IncrementCauseCompanyStatsHttpApiHandler(DynamoDbClient dynamoDb, HandlerConfig config,
+                                                    MetricsLogger metricsLogger, CauseCompanyStatsCache statsCache) {
+        this.core = new IncrementCauseCompanyStatsCore(dynamoDb, config, metricsLogger, statsCache);
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        try {
+            core.prime();
+        } catch (Exception e) {
+            Logger.error(49, null, "priming failed: " + e.getMessage());
+        }
+        core.primeConnection();
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        core.primeConnection();
+    }
+
+    @Override
+    public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        IncrementCauseCompanyStatsCore.Response response = core.handle(() -> sub(event), event.getPathParameters(),
+                event.getHeaders(), body(event), context);
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(response.getStatusCode())
+                .withHeaders(response.getHeaders())
+                .withBody(response.getBody())
+                .build();
+    }
+
+    static String sub(APIGatewayV2HTTPEvent event) {
+        APIGatewayV2HTTPEvent.RequestContext requestContext = event.getRequestContext();
+        if (requestContext == null || requestContext.getAuthorizer() == null
+                || requestContext.getAuthorizer().getJwt() == null) {
+            return null;
+        }
+        Map<String, String> claims = requestContext.getAuthorizer().getJwt().getClaims();
+        return IncrementCauseCompanyStatsCore.subFromClaims(claims);
+    }
+
+    // HTTP APIs base64-encode bodies whose content type they do not recognise as text.
+    private static String body(APIGatewayV2HTTPEvent event) {
+        String body = event.getBody();
+        if (body != null && event.getIsBase64Encoded()) {
+            return new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+        }
+        return body;
+    }
+}
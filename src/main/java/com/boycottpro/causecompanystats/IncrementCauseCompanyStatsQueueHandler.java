@@ -0,0 +1,80 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import com.boycottpro.utilities.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumes queued increments. Each message body is a {@link BatchIncrementEntry}. Messages for
+ * the same cause/company pair are folded into one write, and only the messages whose write
+ * failed are reported back so SQS redelivers just those.
+ */
+public class IncrementCauseCompanyStatsQueueHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BatchStatsWriter batchWriter;
+
+    public IncrementCauseCompanyStatsQueueHandler() {
+        this(BatchStatsWriter.fromConfig(HandlerConfig.fromEnvironment()));
+    }
+
+    public IncrementCauseCompanyStatsQueueHandler(DynamoDbClient dynamoDb) {
+        this(dynamoDb, null);
+    }
+
+    public IncrementCauseCompanyStatsQueueHandler(DynamoDbClient dynamoDb, HandlerConfig config) {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        CauseCompanyStatsUpdater updater = CauseCompanyStatsUpdater.fromConfig(dynamoDb, settings);
+        this.batchWriter = new BatchStatsWriter(updater, settings.getBatchWriteParallelism());
+    }
+
+    public IncrementCauseCompanyStatsQueueHandler(BatchStatsWriter batchWriter) {
+        this.batchWriter = batchWriter;
+    }
+
+    @Override
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+        List<SQSEvent.SQSMessage> messages = event != null && event.getRecords() != null
+                ? event.getRecords() : List.of();
+        List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+        List<BatchIncrementEntry> entries = new ArrayList<>(messages.size());
+        for (SQSEvent.SQSMessage message : messages) {
+            entries.add(parse(message));
+        }
+        try {
+            String[] errors = batchWriter.writeAll(entries, context);
+            for (int i = 0; i < messages.size(); i++) {
+                if (errors[i] != null) {
+                    Logger.error(56, null, "message " + messages.get(i).getMessageId() + " failed: " + errors[i]);
+                    failures.add(new SQSBatchResponse.BatchItemFailure(messages.get(i).getMessageId()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.error(62, null, "interrupted while writing batch; returning whole batch for retry");
+            failures.clear();
+            for (SQSEvent.SQSMessage message : messages) {
+                failures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+            }
+        }
+        return new SQSBatchResponse(failures);
+    }
+
+    private BatchIncrementEntry parse(SQSEvent.SQSMessage message) {
+        try {
+            return message.getBody() == null ? null
+                    : objectMapper.readValue(message.getBody(), BatchIncrementEntry.class);
+        } catch (Exception e) {
+            Logger.error(76, null, "message " + message.getMessageId() + " is not a valid entry: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.utilities.Logger;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the increment path as a long-lived server for container deployments behind a load
+ * balancer: {@code POST /cause-company-stats/{cause_id}/{company_id}} with the same body as the
+ * Lambda, answered by the same {@link IncrementCauseCompanyStatsCore}. Every exchange runs on its
+ * own virtual thread and all of them share one DynamoDbClient and core (and with it one
+ * ObjectMapper). The caller's sub is taken from the {@code x-amzn-oidc-data} token an ALB with
+ * OIDC authentication signs, checked by {@link AlbIdentityVerifier} against {@code SERVER_ALB_ARN};
+ * requests without a valid token are answered 401, whoever can reach the port.
+ *
+ * <p>At most {@code SERVER_MAX_CONCURRENCY} requests are processed at once; the rest are answered
+ * 503 with Retry-After rather than queued. On shutdown the health check starts failing while
+ * requests are still served for {@code SERVER_DEREGISTRATION_DELAY_SECONDS}, long enough for the
+ * load balancer to stop routing here; then the listener closes and in-flight requests get up to
+ * {@code SERVER_DRAIN_SECONDS} to finish. The container's stop timeout must cover both.
+ * {@code COALESCE_WINDOW_MS} merges concurrent increments of the same pair into one write; only
+ * this host honors it.
+ *
+ * <p>Start with {@code java -cp target/increment-cause-company-lambda.jar
+ * com.boycottpro.causecompanystats.IncrementCauseCompanyStatsServer}.
+ */
+public class IncrementCauseCompanyStatsServer {
+
+    static final String STATS_PATH = "/cause-company-stats/";
+    static final String HEALTH_PATH = "/health";
+    static final String OIDC_DATA_HEADER = "x-amzn-oidc-data";
+    static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final byte[] BUSY_BODY =
+            "{\"message\":\"Server busy, please retry shortly\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOT_FOUND_BODY = "{\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METHOD_NOT_ALLOWED_BODY =
+            "{\"message\":\"Method Not Allowed\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOO_LARGE_BODY =
+            "{\"message\":\"Request body too large\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final IncrementCauseCompanyStatsCore core;
+    private final AlbIdentityVerifier identityVerifier;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long drainSeconds;
+    private final long deregistrationDelaySeconds;
+    private volatile boolean draining;
+
+    /**
+     * Throws IllegalArgumentException unless SERVER_ALB_ARN names the load balancer in front.
+     */
+    public IncrementCauseCompanyStatsServer(DynamoDbClient dynamoDb, HandlerConfig config) throws IOException {
+        this(new IncrementCauseCompanyStatsCore(dynamoDb, config, null, null, true), config,
+                AlbIdentityVerifier.forLoadBalancer(config != null ? config.getServerAlbArn() : null));
+    }
+
+    IncrementCauseCompanyStatsServer(IncrementCauseCompanyStatsCore core, HandlerConfig config,
+                                     AlbIdentityVerifier identityVerifier) throws IOException {
+        HandlerConfig settings = config != null ? config : new HandlerConfig();
+        this.core = core;
+        this.identityVerifier = identityVerifier;
+        this.permits = new Semaphore(settings.getServerMaxConcurrency());
+        this.drainSeconds = settings.getServerDrainSeconds();
+        this.deregistrationDelaySeconds = settings.getServerDeregistrationDelaySeconds();
+        this.server = HttpServer.create(new InetSocketAddress(settings.getServerPort()),
+                settings.getServerMaxConcurrency());
+        this.server.createContext(STATS_PATH, this::handleStats);
+        this.server.createContext(HEALTH_PATH, this::handleHealth);
+        this.server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        IncrementCauseCompanyStatsServer server =
+                new IncrementCauseCompanyStatsServer(CauseCompanyStatsUpdater.createClient(),
+                        HandlerConfig.fromEnvironment());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "server-shutdown"));
+        server.start();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * The bound port; useful when the configured port is 0.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Fails the health check and keeps serving for the deregistration delay, then stops accepting
+     * connections and waits up to the drain time for in-flight requests. Requests still running
+     * after that are interrupted rather than waited for.
+     */
+    public void stop() {
+        draining = true;
+        try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(deregistrationDelaySeconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        server.stop((int) drainSeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(0, drainDeadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                Logger.error(124, null, "drain time elapsed with requests in flight; interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = draining ? BUSY_BODY : "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            send(exchange, draining ? 503 : 200, IncrementCauseCompanyStatsCore.JSON_HEADERS, body);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, Map.of("Content-Type", "application/json", "Allow", "POST"),
+                        METHOD_NOT_ALLOWED_BODY);
+                return;
+            }
+            Map<String, String> pathParams = pathParameters(exchange.getRequestURI().getPath());
+            if (pathParams == null) {
+                send(exchange, 404, IncrementCauseCompanyStatsCore.JSON_HEADERS, NOT_FOUND_BODY);
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                send(exchange, 503, Map.of("Content-Type", "application/json", "Retry-After", "1"), BUSY_BODY);
+                return;
+            }
+            try {
+                String body = readBody(exchange.getRequestBody());
+                if (body == null) {
+                    send(exchange, 413, IncrementCauseCompanyStatsCore.JSON_HEADERS, TOO_LARGE_BODY);
+                    return;
+                }
+                Map<String, String> headers = firstValues(exchange.getRequestHeaders());
+                IncrementCauseCompanyStatsCore.Response response = core.handle(
+                        () -> identityVerifier.verifiedSub(headers.get(OIDC_DATA_HEADER)),
+                        pathParams, headers, body, null);
+                send(exchange, response.getStatusCode(), response.getHeaders(),
+                        response.getBody().getBytes(StandardCharsets.UTF_8));
+            } finally {
+                permits.release();
+            }
+        } catch (IOException e) {
+            Logger.error(172, null, "failed to answer request: " + e.getMessage());
+        }
+    }
+
+    // "/cause-company-stats/{cause_id}/{company_id}", or null when the path has another shape.
+    static Map<String, String> pathParameters(String path) {
+        if (path == null || !path.startsWith(STATS_PATH)) {
+            return null;
+        }
+        String[] segments = path.substring(STATS_PATH.length()).split("/", -1);
+        if (segments.length != 2 || segments[0].isEmpty() || segments[1].isEmpty()) {
+            return null;
+        }
+        return Map.of("cause_id", segments[0], "company_id", segments[1]);
+    }
+
+    // Header names lowercased, first value of each; the core looks its headers up case-insensitively.
+    private static Map<String, String> firstValues(Headers requestHeaders) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : requestHeaders.entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+
+    // The body as UTF-8, or null when it is longer than MAX_BODY_BYTES.
+    private static String readBody(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        return bytes.length > MAX_BODY_BYTES ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, Map<String, String> headers, byte[] body)
+            throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        headers.forEach(responseHeaders::set);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
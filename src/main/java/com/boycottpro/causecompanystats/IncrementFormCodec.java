@@ -0,0 +1,84 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.IncrementForm;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Reads the flat {@link IncrementForm} with the streaming parser. Anything outside the
+ * plain shape (unknown fields, coercible scalars, malformed JSON) is handed to databind, so
+ * accepted input and the exceptions thrown for rejected input are exactly those of
+ * {@code objectMapper.readValue(body, IncrementForm.class)}.
+ */
+public class IncrementFormCodec {
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public IncrementFormCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public IncrementForm read(String body) throws IOException {
+        IncrementForm form = body != null ? readPlain(body) : null;
+        return form != null ? form : objectMapper.readValue(body, IncrementForm.class);
+    }
+
+    private IncrementForm readPlain(String body) {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String companyName = null;
+            String causeDesc = null;
+            boolean increment = false;
+            String idempotencyKey = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "company_name":
+                        if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        companyName = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        break;
+                    case "cause_desc":
+                        if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        causeDesc = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        break;
+                    case "increment":
+                        if (value != JsonToken.VALUE_TRUE && value != JsonToken.VALUE_FALSE) {
+                            return null;
+                        }
+                        increment = value == JsonToken.VALUE_TRUE;
+                        break;
+                    case "idempotency_key":
+                        if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        idempotencyKey = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return null;
+            }
+            IncrementForm form = new IncrementForm(companyName, causeDesc, increment);
+            form.setIdempotency_key(idempotencyKey);
+            return form;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
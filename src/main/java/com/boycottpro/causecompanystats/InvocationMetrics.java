@@ -0,0 +1,52 @@
+package com.boycottpro.causecompanystats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dimensions and values collected during one invocation, published by {@link MetricsLogger}.
+ */
+public class InvocationMetrics {
+
+    public static final String MILLISECONDS = "Milliseconds";
+    public static final String COUNT = "Count";
+    public static final String PERCENT = "Percent";
+    public static final String NONE = "None";
+
+    private final long startNanos;
+    private final Map<String, String> dimensions = new LinkedHashMap<>();
+    private final Map<String, Number> values = new LinkedHashMap<>();
+    private final Map<String, String> units = new LinkedHashMap<>();
+
+    InvocationMetrics(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public InvocationMetrics dimension(String name, String value) {
+        dimensions.put(name, value);
+        return this;
+    }
+
+    public InvocationMetrics put(String name, Number value, String unit) {
+        values.put(name, value);
+        units.put(name, unit);
+        return this;
+    }
+
+    public InvocationMetrics increment(String name) {
+        Number current = values.get(name);
+        return put(name, current == null ? 1 : current.longValue() + 1, COUNT);
+    }
+
+    public double millisSinceStart() {
+        return millisSince(startNanos);
+    }
+
+    public static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+
+    Map<String, String> getDimensions() { return dimensions; }
+    Map<String, Number> getValues() { return values; }
+    Map<String, String> getUnits() { return units; }
+}
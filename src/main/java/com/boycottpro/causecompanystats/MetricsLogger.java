@@ -0,0 +1,74 @@
+package com.boycottpro.causecompanystats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes CloudWatch Embedded Metric Format records as single JSON lines. Lambda ships stdout to
+ * CloudWatch Logs, which extracts the metrics; locally the lines are plain JSON.
+ */
+public class MetricsLogger {
+
+    static final String NAMESPACE = "BoycottPro/CauseCompanyStats";
+    private static final AtomicBoolean COLD_START = new AtomicBoolean(true);
+    private final PrintStream out;
+    private final boolean enabled;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public MetricsLogger(PrintStream out) {
+        this(out, true);
+    }
+
+    public MetricsLogger(PrintStream out, boolean enabled) {
+        this.out = out;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts an invocation. The first invocation in the container is flagged as the cold start.
+     */
+    public InvocationMetrics start() {
+        InvocationMetrics metrics = new InvocationMetrics(System.nanoTime());
+        metrics.put("ColdStart", COLD_START.getAndSet(false) ? 1 : 0, InvocationMetrics.COUNT);
+        return metrics;
+    }
+
+    public void publish(InvocationMetrics metrics) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            out.println(objectMapper.writeValueAsString(toEmf(metrics, System.currentTimeMillis())));
+        } catch (Exception e) {
+            // metrics must never fail the request
+            System.err.println("failed to publish metrics: " + e.getMessage());
+        }
+    }
+
+    static Map<String, Object> toEmf(InvocationMetrics metrics, long timestamp) {
+        List<Map<String, String>> definitions = new ArrayList<>();
+        for (Map.Entry<String, String> unit : metrics.getUnits().entrySet()) {
+            definitions.add(Map.of("Name", unit.getKey(), "Unit", unit.getValue()));
+        }
+        Map<String, Object> directive = new LinkedHashMap<>();
+        directive.put("Namespace", NAMESPACE);
+        directive.put("Dimensions", List.of(new ArrayList<>(metrics.getDimensions().keySet())));
+        directive.put("Metrics", definitions);
+
+        Map<String, Object> aws = new LinkedHashMap<>();
+        aws.put("Timestamp", timestamp);
+        aws.put("CloudWatchMetrics", List.of(directive));
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("_aws", aws);
+        record.putAll(metrics.getDimensions());
+        record.putAll(metrics.getValues());
+        return record;
+    }
+}
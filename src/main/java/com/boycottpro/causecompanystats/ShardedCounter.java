@@ -0,0 +1,124 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads the boycott_count of a hot cause/company pair over several items. Shard 0 is the
+ * original item, so unsharded pairs keep their existing key; shard n lives under
+ * company_id "{company_id}#shard-n" in the same cause partition. Shard items carry
+ * {@code shard_of} (the base company_id) and no company or cause metadata, so any reader listing a
+ * cause's companies can fold them into their company or drop them with
+ * {@code attribute_not_exists(shard_of)}.
+ *
+ * <p>Before a pair is first written with n shards, its base item records {@code shard_count = n}
+ * (only ever raised). Readers cover the larger of the configured count and that record, so
+ * lowering COUNTER_SHARDS or an override never hides counts already held in the higher shards.
+ */
+public class ShardedCounter {
+
+    public static final String SHARD_SEPARATOR = "#shard-";
+    public static final String SHARD_OF_ATTRIBUTE = "shard_of";
+    public static final String SHARD_COUNT_ATTRIBUTE = "shard_count";
+    private final int defaultShards;
+    private final Map<String, Integer> overrides;
+
+    public ShardedCounter(int defaultShards, Map<String, Integer> overrides) {
+        this.defaultShards = Math.max(1, defaultShards);
+        this.overrides = overrides != null ? Map.copyOf(overrides) : Map.of();
+    }
+
+    public static ShardedCounter unsharded() {
+        return new ShardedCounter(1, Map.of());
+    }
+
+    /**
+     * Parses "cause_id#company_id=shards" pairs separated by commas. Malformed pairs are ignored.
+     */
+    public static Map<String, Integer> parseOverrides(String value) {
+        Map<String, Integer> overrides = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return overrides;
+        }
+        for (String pair : value.split(",")) {
+            int separator = pair.lastIndexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                overrides.put(pair.substring(0, separator).trim(), Integer.parseInt(pair.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                // skip the malformed override and keep the rest
+            }
+        }
+        return overrides;
+    }
+
+    public int shardCount(String causeId, String companyId) {
+        Integer override = overrides.get(CauseCompanyDelta.key(causeId, companyId));
+        return override != null ? Math.max(1, override) : defaultShards;
+    }
+
+    public int pickShard(String causeId, String companyId, String hint) {
+        int shards = shardCount(causeId, companyId);
+        if (shards == 1) {
+            return 0;
+        }
+        if (hint != null) {
+            return Math.floorMod(hint.hashCode(), shards);
+        }
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+
+    public static String shardCompanyId(String companyId, int shard) {
+        return shard == 0 ? companyId : companyId + SHARD_SEPARATOR + shard;
+    }
+
+    public List<String> shardCompanyIds(String causeId, String companyId) {
+        return shardCompanyIds(companyId, 0, shardCount(causeId, companyId));
+    }
+
+    /**
+     * The company ids of shards [fromShard, toShard) of the pair.
+     */
+    public static List<String> shardCompanyIds(String companyId, int fromShard, int toShard) {
+        List<String> ids = new ArrayList<>(Math.max(0, toShard - fromShard));
+        for (int shard = fromShard; shard < toShard; shard++) {
+            ids.add(shardCompanyId(companyId, shard));
+        }
+        return ids;
+    }
+
+    /**
+     * How many shards may hold counts of the pair: the configured count, or more when its base
+     * item (null if absent) records that the pair was once written with more.
+     */
+    public int readShardCount(String causeId, String companyId, Map<String, AttributeValue> baseItem) {
+        return Math.max(shardCount(causeId, companyId), recordedShardCount(baseItem));
+    }
+
+    static int recordedShardCount(Map<String, AttributeValue> baseItem) {
+        AttributeValue recorded = baseItem != null ? baseItem.get(SHARD_COUNT_ATTRIBUTE) : null;
+        return recorded != null && recorded.n() != null ? Integer.parseInt(recorded.n()) : 1;
+    }
+
+    public static String baseCompanyId(String storedCompanyId) {
+        int separator = storedCompanyId.indexOf(SHARD_SEPARATOR);
+        return separator < 0 ? storedCompanyId : storedCompanyId.substring(0, separator);
+    }
+
+    /**
+     * The company a stats item counts toward; items written before shard items were marked are
+     * recognised by their company_id.
+     */
+    public static String baseCompanyId(Map<String, AttributeValue> item) {
+        AttributeValue shardOf = item.get(SHARD_OF_ATTRIBUTE);
+        return shardOf != null && shardOf.s() != null ? shardOf.s() : baseCompanyId(item.get("company_id").s());
+    }
+}
@@ -0,0 +1,239 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Retries throttled counter writes with full-jitter exponential backoff. Every wait is bounded by
+ * a deadline taken from the Lambda context, so a retry never outlives the invocation, and the
+ * per-key {@link HotKeyRateLimiter} is told about each throttle and success so it can slow down
+ * or speed back up.
+ *
+ * <p>The bound only holds when this is the only retry layer: use a client from
+ * {@link CauseCompanyStatsUpdater#createClient()}, which has the SDK's retries turned off, and
+ * give each attempt {@link #attemptTimeout(long)}. Server errors and connection failures that the
+ * SDK would have retried are retried here instead, without slowing the key's limiter.
+ */
+public class ThrottleRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long safetyMarginMillis;
+    private final long defaultBudgetMillis;
+    private final HotKeyRateLimiter limiter;
+    private final LongSupplier nanoClock;
+    private final LongConsumer sleeper;
+
+    public ThrottleRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long safetyMarginMillis,
+                               long defaultBudgetMillis, HotKeyRateLimiter limiter) {
+        this(maxAttempts, baseDelayMillis, maxDelayMillis, safetyMarginMillis, defaultBudgetMillis, limiter,
+                System::nanoTime, ThrottleRetryPolicy::sleep);
+    }
+
+    /**
+     * Deadlines and backoff are measured on nanoClock and waited out with sleeper (milliseconds).
+     */
+    ThrottleRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long safetyMarginMillis,
+                        long defaultBudgetMillis, HotKeyRateLimiter limiter, LongSupplier nanoClock,
+                        LongConsumer sleeper) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.safetyMarginMillis = Math.max(0, safetyMarginMillis);
+        this.defaultBudgetMillis = Math.max(0, defaultBudgetMillis);
+        this.limiter = limiter;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * A single attempt and no rate limiting: the behavior before throttle handling existed.
+     */
+    public static ThrottleRetryPolicy none() {
+        return new ThrottleRetryPolicy(1, 1, 1, 0, 0, null);
+    }
+
+    public static boolean isThrottle(Throwable e) {
+        return e instanceof ProvisionedThroughputExceededException || e instanceof RequestLimitExceededException
+                || (e instanceof TransactionCanceledException && isRetryableCancellation((TransactionCanceledException) e))
+                || (e instanceof AwsServiceException && ((AwsServiceException) e).isThrottlingException());
+    }
+
+    /**
+     * A 5xx from DynamoDB or a failure to get a response at all. An attempt cut off by
+     * {@link #attemptTimeout(long)} has used up the deadline and is not transient.
+     */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof AwsServiceException) {
+            return ((AwsServiceException) e).statusCode() >= 500;
+        }
+        return e instanceof SdkClientException && !(e instanceof ApiCallTimeoutException);
+    }
+
+    /**
+     * A rollup transaction cancelled because one of its items was throttled or was being written
+     * by a concurrent transaction succeeds on a later attempt; a failed condition does not.
+     */
+    static boolean isRetryableCancellation(TransactionCanceledException e) {
+        if (!e.hasCancellationReasons()) {
+            return false;
+        }
+        boolean retryable = false;
+        for (CancellationReason reason : e.cancellationReasons()) {
+            String code = reason.code();
+            if ("ThrottlingError".equals(code) || "ProvisionedThroughputExceeded".equals(code)
+                    || "TransactionConflict".equals(code)) {
+                retryable = true;
+            } else if (code != null && !"None".equals(code)) {
+                return false;
+            }
+        }
+        return retryable;
+    }
+
+    /**
+     * The point in System.nanoTime() by which all attempts must be finished: the remaining
+     * invocation time less a safety margin, or the default budget when there is no context.
+     */
+    public long deadline(Context context) {
+        long budgetMillis = context != null
+                ? context.getRemainingTimeInMillis() - safetyMarginMillis
+                : defaultBudgetMillis;
+        return nanoClock.getAsLong() + Math.max(0, budgetMillis) * 1_000_000L;
+    }
+
+    public long defaultDeadline() {
+        return deadline(null);
+    }
+
+    /**
+     * Caps one attempt, including any time the SDK spends on it, at what is left before
+     * deadlineNanos. Null once the deadline has passed: the first attempt always runs, and then
+     * keeps the client's own timeouts.
+     */
+    public static AwsRequestOverrideConfiguration attemptTimeout(long deadlineNanos) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return null;
+        }
+        return AwsRequestOverrideConfiguration.builder()
+                .apiCallTimeout(Duration.ofNanos(remainingNanos))
+                .build();
+    }
+
+    public <T> T execute(String key, long deadlineNanos, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            if (limiter != null && !limiter.acquire(key, deadlineNanos)) {
+                throw ProvisionedThroughputExceededException.builder()
+                        .message("Client-side write limit reached for " + key)
+                        .build();
+            }
+            try {
+                T result = call.get();
+                if (limiter != null) {
+                    limiter.onSuccess(key);
+                }
+                return result;
+            } catch (RuntimeException e) {
+                boolean throttled = isThrottle(e);
+                if (!throttled && !isTransient(e)) {
+                    throw e;
+                }
+                if (throttled && limiter != null) {
+                    limiter.onThrottle(key);
+                }
+                long delayMillis = backoffMillis(attempt);
+                if (attempt >= maxAttempts || nanoClock.getAsLong() + delayMillis * 1_000_000L > deadlineNanos) {
+                    throw e;
+                }
+                sleeper.accept(delayMillis);
+            }
+        }
+    }
+
+    /**
+     * {@link #execute} for calls that return a future. Backoff waits on a delayed executor rather
+     * than a thread; a wait for the limiter still blocks the thread that starts the attempt.
+     */
+    public <T> CompletableFuture<T> executeAsync(String key, long deadlineNanos,
+                                                 Supplier<CompletableFuture<T>> call) {
+        return attemptAsync(key, deadlineNanos, call, 1);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(String key, long deadlineNanos,
+                                                  Supplier<CompletableFuture<T>> call, int attempt) {
+        CompletableFuture<T> result;
+        try {
+            if (limiter != null && !limiter.acquire(key, deadlineNanos)) {
+                throw ProvisionedThroughputExceededException.builder()
+                        .message("Client-side write limit reached for " + key)
+                        .build();
+            }
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((value, error) -> {
+            if (error == null) {
+                if (limiter != null) {
+                    limiter.onSuccess(key);
+                }
+                return CompletableFuture.completedFuture(value);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            boolean throttled = isThrottle(cause);
+            if (!throttled && !isTransient(cause)) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            if (throttled && limiter != null) {
+                limiter.onThrottle(key);
+            }
+            long delayMillis = backoffMillis(attempt);
+            if (attempt >= maxAttempts || nanoClock.getAsLong() + delayMillis * 1_000_000L > deadlineNanos) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attemptAsync(key, deadlineNanos, call, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public HotKeyRateLimiter getLimiter() { return limiter; }
+}
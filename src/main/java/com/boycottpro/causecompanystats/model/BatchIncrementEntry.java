@@ -0,0 +1,21 @@
+package com.boycottpro.causecompanystats.model;
+
+public class BatchIncrementEntry extends IncrementForm {
+    private String cause_id;
+    private String company_id;
+
+    public BatchIncrementEntry() {}
+
+    public BatchIncrementEntry(String cause_id, String company_id, String company_name, String cause_desc,
+                               boolean increment) {
+        super(company_name, cause_desc, increment);
+        this.cause_id = cause_id;
+        this.company_id = company_id;
+    }
+
+    public String getCause_id() { return cause_id; }
+    public void setCause_id(String cause_id) { this.cause_id = cause_id; }
+
+    public String getCompany_id() { return company_id; }
+    public void setCompany_id(String company_id) { this.company_id = company_id; }
+}
@@ -0,0 +1,16 @@
+package com.boycottpro.causecompanystats.model;
+
+import java.util.List;
+
+public class BatchIncrementForm {
+    private List<BatchIncrementEntry> entries;
+
+    public BatchIncrementForm() {}
+
+    public BatchIncrementForm(List<BatchIncrementEntry> entries) {
+        this.entries = entries;
+    }
+
+    public List<BatchIncrementEntry> getEntries() { return entries; }
+    public void setEntries(List<BatchIncrementEntry> entries) { this.entries = entries; }
+}
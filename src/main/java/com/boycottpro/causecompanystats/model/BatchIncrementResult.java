@@ -0,0 +1,32 @@
+package com.boycottpro.causecompanystats.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchIncrementResult {
+    private String cause_id;
+    private String company_id;
+    private boolean recordUpdated;
+    private String error;
+
+    public BatchIncrementResult() {}
+
+    public BatchIncrementResult(String cause_id, String company_id, boolean recordUpdated, String error) {
+        this.cause_id = cause_id;
+        this.company_id = company_id;
+        this.recordUpdated = recordUpdated;
+        this.error = error;
+    }
+
+    public String getCause_id() { return cause_id; }
+    public void setCause_id(String cause_id) { this.cause_id = cause_id; }
+
+    public String getCompany_id() { return company_id; }
+    public void setCompany_id(String company_id) { this.company_id = company_id; }
+
+    public boolean isRecordUpdated() { return recordUpdated; }
+    public void setRecordUpdated(boolean recordUpdated) { this.recordUpdated = recordUpdated; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
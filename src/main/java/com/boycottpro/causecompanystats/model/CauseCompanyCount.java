@@ -0,0 +1,24 @@
+package com.boycottpro.causecompanystats.model;
+
+public class CauseCompanyCount {
+    private String cause_id;
+    private String company_id;
+    private long boycott_count;
+
+    public CauseCompanyCount() {}
+
+    public CauseCompanyCount(String cause_id, String company_id, long boycott_count) {
+        this.cause_id = cause_id;
+        this.company_id = company_id;
+        this.boycott_count = boycott_count;
+    }
+
+    public String getCause_id() { return cause_id; }
+    public void setCause_id(String cause_id) { this.cause_id = cause_id; }
+
+    public String getCompany_id() { return company_id; }
+    public void setCompany_id(String company_id) { this.company_id = company_id; }
+
+    public long getBoycott_count() { return boycott_count; }
+    public void setBoycott_count(long boycott_count) { this.boycott_count = boycott_count; }
+}
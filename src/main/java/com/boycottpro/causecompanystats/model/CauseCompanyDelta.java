@@ -0,0 +1,35 @@
+package com.boycottpro.causecompanystats.model;
+
+/**
+ * Net change for one cause/company pair after merging several increments and decrements.
+ */
+public class CauseCompanyDelta {
+    private final String causeId;
+    private final String companyId;
+    private int delta;
+    private String causeDesc;
+    private String companyName;
+
+    public CauseCompanyDelta(String causeId, String companyId) {
+        this.causeId = causeId;
+        this.companyId = companyId;
+    }
+
+    public static String key(String causeId, String companyId) {
+        return causeId + "#" + companyId;
+    }
+
+    public void add(boolean increment, String desc, String name) {
+        delta += increment ? 1 : -1;
+        if (increment && causeDesc == null && desc != null && name != null) {
+            causeDesc = desc;
+            companyName = name;
+        }
+    }
+
+    public String getCauseId() { return causeId; }
+    public String getCompanyId() { return companyId; }
+    public int getDelta() { return delta; }
+    public String getCauseDesc() { return causeDesc; }
+    public String getCompanyName() { return companyName; }
+}
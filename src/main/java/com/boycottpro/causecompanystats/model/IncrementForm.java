@@ -4,6 +4,7 @@ public class IncrementForm {
     private String company_name;
     private String cause_desc;
     private boolean increment;
+    private String idempotency_key;
 
     public IncrementForm() {}
 
@@ -21,4 +22,7 @@ public class IncrementForm {
 
     public boolean isIncrement() { return increment; }
     public void setIncrement(boolean increment) { this.increment = increment; }
+
+    public String getIdempotency_key() { return idempotency_key; }
+    public void setIdempotency_key(String idempotency_key) { this.idempotency_key = idempotency_key; }
 }
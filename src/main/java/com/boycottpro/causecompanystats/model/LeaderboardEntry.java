@@ -0,0 +1,27 @@
+package com.boycottpro.causecompanystats.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LeaderboardEntry {
+    private String company_id;
+    private String company_name;
+    private long boycott_count;
+
+    public LeaderboardEntry() {}
+
+    public LeaderboardEntry(String company_id, String company_name, long boycott_count) {
+        this.company_id = company_id;
+        this.company_name = company_name;
+        this.boycott_count = boycott_count;
+    }
+
+    public String getCompany_id() { return company_id; }
+    public void setCompany_id(String company_id) { this.company_id = company_id; }
+
+    public String getCompany_name() { return company_name; }
+    public void setCompany_name(String company_name) { this.company_name = company_name; }
+
+    public long getBoycott_count() { return boycott_count; }
+    public void setBoycott_count(long boycott_count) { this.boycott_count = boycott_count; }
+}
@@ -0,0 +1,19 @@
+package com.boycottpro.causecompanystats.model;
+
+public class RollupBucket {
+    private String bucket;
+    private long boycott_count;
+
+    public RollupBucket() {}
+
+    public RollupBucket(String bucket, long boycott_count) {
+        this.bucket = bucket;
+        this.boycott_count = boycott_count;
+    }
+
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public long getBoycott_count() { return boycott_count; }
+    public void setBoycott_count(long boycott_count) { this.boycott_count = boycott_count; }
+}
@@ -0,0 +1,51 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlbIdentityVerifierTest {
+
+    private static final String SUB = "11111111-2222-3333-4444-555555555555";
+    private final AlbTokenSigner signer = new AlbTokenSigner();
+
+    @Test
+    public void testValidTokenYieldsSubAndKeyIsFetchedOnce() {
+        AtomicInteger fetches = new AtomicInteger();
+        AlbIdentityVerifier verifier = new AlbIdentityVerifier(AlbTokenSigner.ALB_ARN, kid -> {
+            fetches.incrementAndGet();
+            return signer.publicKeyPem();
+        });
+
+        assertEquals(SUB, verifier.verifiedSub(signer.token(SUB)));
+        assertEquals("other-sub", verifier.verifiedSub(signer.token("other-sub")));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testRejectsExpiredForeignTamperedAndMissingTokens() {
+        AlbIdentityVerifier verifier = signer.verifier();
+        long now = System.currentTimeMillis() / 1000L;
+        String valid = signer.token(SUB);
+        String[] parts = valid.split("\\.");
+        String otherPayload = signer.token("someone-else").split("\\.")[1];
+
+        assertNull(verifier.verifiedSub(signer.token(SUB, AlbTokenSigner.ALB_ARN, now - 1)));
+        assertNull(verifier.verifiedSub(signer.token(SUB, AlbTokenSigner.ALB_ARN.replace("stats", "other"), now + 60)));
+        assertNull(verifier.verifiedSub(parts[0] + "." + otherPayload + "." + parts[2]));
+        assertNull(verifier.verifiedSub(new AlbTokenSigner().token(SUB)));
+        assertNull(verifier.verifiedSub(parts[0] + "." + parts[1] + "."));
+        assertNull(verifier.verifiedSub("not-a-jwt"));
+        assertNull(verifier.verifiedSub(null));
+    }
+
+    @Test
+    public void testOnlyLoadBalancerArnsAreAccepted() {
+        assertThrows(IllegalArgumentException.class, () -> AlbIdentityVerifier.forLoadBalancer(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> AlbIdentityVerifier.forLoadBalancer("arn:aws:iam::123456789012:role/stats"));
+        assertNotNull(AlbIdentityVerifier.forLoadBalancer(AlbTokenSigner.ALB_ARN));
+    }
+}
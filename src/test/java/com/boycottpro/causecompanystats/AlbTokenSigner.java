@@ -0,0 +1,65 @@
+package com.boycottpro.causecompanystats;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+/**
+ * Signs x-amzn-oidc-data tokens the way an ALB does (ES256 over header.payload), with a key pair
+ * made for the test, and serves that key's PEM as the ALB's published public key.
+ */
+public class AlbTokenSigner {
+
+    public static final String ALB_ARN =
+            "arn:aws:elasticloadbalancing:us-east-1:123456789012:loadbalancer/app/stats/50dc6c495c0c9188";
+    public static final String KID = "7b1c3d5e-0000-4000-8000-000000000001";
+
+    private final KeyPair keyPair;
+
+    public AlbTokenSigner() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            this.keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public AlbIdentityVerifier verifier() {
+        return new AlbIdentityVerifier(ALB_ARN, kid -> KID.equals(kid) ? publicKeyPem() : null);
+    }
+
+    public String publicKeyPem() {
+        return "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(keyPair.getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----\n";
+    }
+
+    public String token(String sub) {
+        return token(sub, ALB_ARN, System.currentTimeMillis() / 1000L + 60);
+    }
+
+    public String token(String sub, String signer, long exp) {
+        String header = "{\"alg\":\"ES256\",\"kid\":\"" + KID + "\",\"signer\":\"" + signer
+                + "\",\"iss\":\"https://issuer.example.com\",\"client\":\"client-id\",\"exp\":" + exp + "}";
+        String payload = "{\"sub\":\"" + sub + "\",\"exp\":" + exp + ",\"iss\":\"https://issuer.example.com\"}";
+        String signingInput = encode(header) + "." + encode(payload);
+        try {
+            Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + Base64.getUrlEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
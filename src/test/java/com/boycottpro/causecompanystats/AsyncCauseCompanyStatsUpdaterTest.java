@@ -0,0 +1,147 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncCauseCompanyStatsUpdaterTest {
+
+    private static final int KEYS = 40;
+
+    /**
+     * Every update of the batch is issued before any of them completes. The throughput comparison
+     * with the synchronous paths is BatchWriteBenchmark in the jmh profile.
+     */
+    @Test
+    public void testAsyncPathKeepsUpdatesInFlightConcurrently() throws Exception {
+        List<BatchIncrementEntry> entries = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            entries.add(new BatchIncrementEntry("c1", "co" + i, "Company", "Cause", true));
+        }
+        List<CompletableFuture<UpdateItemResponse>> pending = new CopyOnWriteArrayList<>();
+        DynamoDbAsyncClient heldClient = new StubAsyncClient() {
+            @Override
+            public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+                CompletableFuture<UpdateItemResponse> response = new CompletableFuture<>();
+                pending.add(response);
+                return response;
+            }
+        };
+        BatchStatsWriter writer = new BatchStatsWriter(new AsyncCauseCompanyStatsUpdater(heldClient));
+
+        CompletableFuture<String[]> errors = CompletableFuture.supplyAsync(() -> {
+            try {
+                return writer.writeAll(entries);
+            } catch (InterruptedException e) {
+                throw new CompletionException(e);
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pending.size() < KEYS && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(KEYS, pending.size());
+        assertFalse(errors.isDone());
+        pending.forEach(response -> response.complete(UpdateItemResponse.builder().build()));
+        for (String error : errors.get(10, TimeUnit.SECONDS)) {
+            assertNull(error);
+        }
+    }
+
+    @Test
+    public void testFailedUpdateCompletesExceptionally() {
+        DynamoDbAsyncClient failing = new StubAsyncClient() {
+            @Override
+            public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+                return CompletableFuture.failedFuture(DynamoDbException.builder().message("DB error").build());
+            }
+        };
+
+        CompletableFuture<Boolean> result = new AsyncCauseCompanyStatsUpdater(failing)
+                .apply("c1", "co1", 1, "Cause", "Company", null);
+
+        CompletionException thrown = assertThrows(CompletionException.class, result::join);
+        assertEquals("DB error", thrown.getCause().getMessage());
+    }
+
+    @Test
+    public void testThrottledUpdatesAreRetriedByThePolicy() {
+        AtomicInteger attempts = new AtomicInteger();
+        DynamoDbAsyncClient throttling = new StubAsyncClient() {
+            @Override
+            public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+                if (attempts.incrementAndGet() < 3) {
+                    return CompletableFuture.failedFuture(ProvisionedThroughputExceededException.builder()
+                            .message("throttled").build());
+                }
+                return super.updateItem(request);
+            }
+        };
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(3, 1, 5, 0, 2_000, null);
+
+        assertTrue(new AsyncCauseCompanyStatsUpdater(throttling, ShardedCounter.unsharded(), policy)
+                .apply("c1", "co1", 1, "Cause", "Company", null).join());
+        assertEquals(3, attempts.get());
+
+        attempts.set(0);
+        CompletionException thrown = assertThrows(CompletionException.class,
+                () -> new AsyncCauseCompanyStatsUpdater(throttling, ShardedCounter.unsharded(),
+                        new ThrottleRetryPolicy(2, 1, 5, 0, 2_000, null))
+                        .apply("c1", "co1", 1, "Cause", "Company", null).join());
+        assertInstanceOf(ProvisionedThroughputExceededException.class, thrown.getCause());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testBatchWriterReportsAsyncFailuresPerKey() throws Exception {
+        DynamoDbAsyncClient client = new StubAsyncClient() {
+            @Override
+            public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+                if ("co2".equals(request.key().get("company_id").s())) {
+                    return CompletableFuture.failedFuture(DynamoDbException.builder().message("DB error").build());
+                }
+                return super.updateItem(request);
+            }
+        };
+
+        String[] errors = new BatchStatsWriter(new AsyncCauseCompanyStatsUpdater(client, new ShardedCounter(1, Map.of())))
+                .writeAll(List.of(new BatchIncrementEntry("c1", "co1", "Company", "Cause", true),
+                        new BatchIncrementEntry("c1", "co2", "Company", "Cause", true)));
+
+        assertNull(errors[0]);
+        assertEquals("DB error", errors[1]);
+    }
+
+    private static class StubAsyncClient implements DynamoDbAsyncClient {
+
+        @Override
+        public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+            return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import com.boycottpro.causecompanystats.model.BatchIncrementForm;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchIncrementCauseCompanyStatsHandlerTest {
+
+    @Mock
+    private DynamoDbClient dynamoDb;
+
+    @Mock
+    private Context context;
+
+    @InjectMocks
+    private BatchIncrementCauseCompanyStatsHandler handler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSameKeyEntriesAreMergedIntoOneWrite() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().build());
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event(List.of(
+                new BatchIncrementEntry("c1", "co1", "Company", "Cause", true),
+                new BatchIncrementEntry("c1", "co1", "Company", "Cause", true),
+                new BatchIncrementEntry("c2", "co1", null, null, false))), context);
+
+        assertEquals(200, response.getStatusCode());
+        JsonNode results = objectMapper.readTree(response.getBody()).get("results");
+        assertEquals(3, results.size());
+        for (JsonNode result : results) {
+            assertTrue(result.get("recordUpdated").asBoolean());
+        }
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb, times(2)).updateItem(captor.capture());
+        Map<String, String> deltas = new HashMap<>();
+        for (UpdateItemRequest request : captor.getAllValues()) {
+            deltas.put(request.key().get("cause_id").s(), request.expressionAttributeValues().get(":delta").n());
+        }
+        assertEquals("2", deltas.get("c1"));
+        assertEquals("-1", deltas.get("c2"));
+    }
+
+    @Test
+    public void testInvalidEntriesAreReportedWithoutBlockingOthers() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().build());
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event(List.of(
+                new BatchIncrementEntry("c1", "co1", "Company", "Cause", true),
+                new BatchIncrementEntry(null, "co2", "Company", "Cause", true),
+                new BatchIncrementEntry("c3", "co3", null, "Cause", true))), context);
+
+        assertEquals(200, response.getStatusCode());
+        JsonNode results = objectMapper.readTree(response.getBody()).get("results");
+        assertTrue(results.get(0).get("recordUpdated").asBoolean());
+        assertFalse(results.get(1).get("recordUpdated").asBoolean());
+        assertEquals("cause_id and company_id are required", results.get(1).get("error").asText());
+        assertFalse(results.get(2).get("recordUpdated").asBoolean());
+        assertTrue(results.get(2).get("error").asText().contains("companyName and causeDesc are required"));
+        verify(dynamoDb, times(1)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    public void testWriteFailureOnlyFailsEntriesForThatKey() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            UpdateItemRequest request = invocation.getArgument(0);
+            if ("c1".equals(request.key().get("cause_id").s())) {
+                throw DynamoDbException.builder().message("DB error").build();
+            }
+            return UpdateItemResponse.builder().build();
+        });
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event(List.of(
+                new BatchIncrementEntry("c1", "co1", "Company", "Cause", true),
+                new BatchIncrementEntry("c2", "co1", "Company", "Cause", true),
+                new BatchIncrementEntry("c1", "co1", null, null, false))), context);
+
+        JsonNode results = objectMapper.readTree(response.getBody()).get("results");
+        assertFalse(results.get(0).get("recordUpdated").asBoolean());
+        assertEquals("DB error", results.get(0).get("error").asText());
+        assertTrue(results.get(1).get("recordUpdated").asBoolean());
+        assertFalse(results.get(2).get("recordUpdated").asBoolean());
+    }
+
+    @Test
+    public void testEmptyBatchIsRejected() throws Exception {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event(Collections.emptyList()), context);
+
+        assertEquals(400, response.getStatusCode());
+        assertTrue(response.getBody().contains("Invalid batch"));
+        verifyNoInteractions(dynamoDb);
+    }
+
+    @Test
+    public void testOversizedBatchIsRejected() throws Exception {
+        List<BatchIncrementEntry> entries = new ArrayList<>();
+        for (int i = 0; i <= BatchIncrementCauseCompanyStatsHandler.MAX_ENTRIES; i++) {
+            entries.add(new BatchIncrementEntry("c" + i, "co1", "Company", "Cause", true));
+        }
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event(entries), context);
+
+        assertEquals(400, response.getStatusCode());
+        verifyNoInteractions(dynamoDb);
+    }
+
+    @Test
+    public void testUnauthorizedUser() {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(new APIGatewayProxyRequestEvent(), context);
+
+        assertEquals(401, response.getStatusCode());
+        assertTrue(response.getBody().contains("Unauthorized"));
+    }
+
+    @Test
+    public void testMalformedBodyReturnsServerError() {
+        APIGatewayProxyRequestEvent event = authorizedEvent();
+        event.setBody("{not json");
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(event, context);
+
+        assertEquals(500, response.getStatusCode());
+        assertTrue(response.getBody().contains("Unexpected server error"));
+    }
+
+    private APIGatewayProxyRequestEvent event(List<BatchIncrementEntry> entries) throws Exception {
+        APIGatewayProxyRequestEvent event = authorizedEvent();
+        event.setBody(objectMapper.writeValueAsString(new BatchIncrementForm(entries)));
+        return event;
+    }
+
+    private APIGatewayProxyRequestEvent authorizedEvent() {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, String> claims = Map.of("sub", "11111111-2222-3333-4444-555555555555");
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", claims);
+
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        return event;
+    }
+}
@@ -0,0 +1,146 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.RollupBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CauseCompanyRollupsTest {
+
+    private static final String ROLLUP_TABLE = "cause_company_stats_rollups";
+    private static final long TTL_SECONDS = 14 * 86_400L;
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T13:20:00Z"));
+    private CauseCompanyRollups rollups;
+    private CauseCompanyStatsUpdater updater;
+
+    @BeforeEach
+    public void setUp() {
+        dynamoDb.createTable(ROLLUP_TABLE, CauseCompanyRollups.PAIR_KEY, CauseCompanyRollups.BUCKET);
+        wire(ShardedCounter.unsharded());
+    }
+
+    @Test
+    public void testDeltaLandsInHourAndDayBuckets() {
+        updater.apply("c1", "co1", 1, "Cause", "Company");
+        updater.apply("c1", "co1", 1, "Cause", "Company");
+        updater.apply("c1", "co1", -1, null, null);
+
+        Map<String, AttributeValue> hour = rollup("c1#co1", "H#2024-05-01T13");
+        assertEquals("1", hour.get("boycott_count").n());
+        long hourEnd = Instant.parse("2024-05-01T14:00:00Z").getEpochSecond();
+        assertEquals(String.valueOf(hourEnd + TTL_SECONDS), hour.get("expires_at").n());
+
+        Map<String, AttributeValue> day = rollup("c1#co1", "D#2024-05-01");
+        assertEquals("1", day.get("boycott_count").n());
+        assertFalse(day.containsKey("expires_at"));
+
+        assertEquals("1", dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME, CauseCompanyStatsReader.key("c1", "co1"))
+                .get("boycott_count").n());
+    }
+
+    @Test
+    public void testReadRangeSumsShardsAcrossHours() {
+        wire(new ShardedCounter(4, Map.of()));
+        long lifetime = 0;
+        for (int hour = 0; hour < 4; hour++) {
+            for (int i = 0; i <= hour; i++) {
+                updater.apply("c1", "co1", 1, "Cause", "Company", "sub-" + i);
+                lifetime++;
+            }
+            clock.advance(1, ChronoUnit.HOURS);
+        }
+
+        List<RollupBucket> hours = rollups.readRange("c1", "co1", CauseCompanyRollups.Granularity.HOUR,
+                Instant.parse("2024-05-01T14:00:00Z"), Instant.parse("2024-05-01T16:59:59Z"));
+        assertEquals(List.of("H#2024-05-01T14", "H#2024-05-01T15", "H#2024-05-01T16"),
+                hours.stream().map(RollupBucket::getBucket).collect(Collectors.toList()));
+        assertEquals(List.of(2L, 3L, 4L),
+                hours.stream().map(RollupBucket::getBoycott_count).collect(Collectors.toList()));
+
+        List<RollupBucket> days = rollups.readRange("c1", "co1", CauseCompanyRollups.Granularity.DAY,
+                Instant.parse("2024-05-01T00:00:00Z"), Instant.parse("2024-05-01T23:59:59Z"));
+        assertEquals(1, days.size());
+        assertEquals(lifetime, days.get(0).getBoycott_count());
+
+        long stored = dynamoDb.items(CauseCompanyStatsUpdater.TABLE_NAME).stream()
+                .mapToLong(CauseCompanyStatsReader::count)
+                .sum();
+        assertEquals(lifetime, stored);
+
+        // Sharding turned off again: the buckets of the higher shards are still read.
+        wire(ShardedCounter.unsharded());
+        days = rollups.readRange("c1", "co1", CauseCompanyRollups.Granularity.DAY,
+                Instant.parse("2024-05-01T00:00:00Z"), Instant.parse("2024-05-01T23:59:59Z"));
+        assertEquals(lifetime, days.get(0).getBoycott_count());
+    }
+
+    @Test
+    public void testOnlyThrottleAndConflictCancellationsAreRetried() {
+        assertTrue(ThrottleRetryPolicy.isThrottle(cancelled("None", "TransactionConflict", "None")));
+        assertTrue(ThrottleRetryPolicy.isThrottle(cancelled("ThrottlingError", "None", "None")));
+        assertFalse(ThrottleRetryPolicy.isThrottle(cancelled("ConditionalCheckFailed", "TransactionConflict", "None")));
+        assertFalse(ThrottleRetryPolicy.isThrottle(TransactionCanceledException.builder().build()));
+    }
+
+    private void wire(ShardedCounter shards) {
+        rollups = new CauseCompanyRollups(dynamoDb, ROLLUP_TABLE, TTL_SECONDS, shards, clock);
+        updater = new CauseCompanyStatsUpdater(dynamoDb, shards, ThrottleRetryPolicy.none(), rollups);
+    }
+
+    private Map<String, AttributeValue> rollup(String pairKey, String bucket) {
+        Map<String, AttributeValue> item = dynamoDb.item(ROLLUP_TABLE, Map.of(
+                CauseCompanyRollups.PAIR_KEY, AttributeValue.fromS(pairKey),
+                CauseCompanyRollups.BUCKET, AttributeValue.fromS(bucket)));
+        assertNotNull(item, pairKey + " " + bucket);
+        return item;
+    }
+
+    private static TransactionCanceledException cancelled(String... codes) {
+        List<CancellationReason> reasons = Arrays.stream(codes)
+                .map(code -> CancellationReason.builder().code(code).build())
+                .collect(Collectors.toList());
+        return TransactionCanceledException.builder().cancellationReasons(reasons).build();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long amount, ChronoUnit unit) {
+            now = now.plus(amount, unit);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.CauseCompanyDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CauseCompanyStatsReconcilerTest {
+
+    private static final String SOURCE_TABLE = "user_boycotts";
+    private static final String SOURCE_INDEX = new HandlerConfig().getReconcileSourceIndex();
+    private final LiveWritesDynamoDbClient dynamoDb = new LiveWritesDynamoDbClient();
+
+    @BeforeEach
+    public void setUp() {
+        dynamoDb.createTable(SOURCE_TABLE, "user_id", "boycott_key")
+                .createIndex(SOURCE_TABLE, SOURCE_INDEX, "cause_id", "company_id");
+    }
+
+    @Test
+    public void testRepairsDriftedNegativeMissingAndOrphanedCounts() {
+        boycotts("c1", "co1", 5);
+        boycotts("c1", "co2", 3);
+        boycotts("c2", "co1", 2);
+        boycotts("c2", "co3", 4);
+        stats("c1", "co1", 5);
+        stats("c1", "co2", 7);
+        stats("c2", "co1", -1);
+        stats("c9", "co9", 6);
+
+        CauseCompanyStatsReconciler.Report report = reconciler(ShardedCounter.unsharded(), false).reconcile();
+
+        assertEquals(14, report.getItemsScanned());
+        assertEquals(5, report.getPairs());
+        assertEquals(4, report.getCorrections());
+        assertEquals(4 + 3 + 4 + 6, report.getAbsoluteDrift());
+        assertEquals(1, report.getNegativeCounts());
+        assertEquals(0, report.getFailures());
+        assertEquals(Map.of("c1#co1", 5L, "c1#co2", 3L, "c2#co1", 2L, "c2#co3", 4L, "c9#co9", 0L), totals());
+
+        assertEquals(0, reconciler(ShardedCounter.unsharded(), false).reconcile().getCorrections());
+    }
+
+    @Test
+    public void testCorrectPairsAreNotWritten() {
+        boycotts("c1", "co1", 3);
+        stats("c1", "co1", 3);
+        long callsBefore = dynamoDb.calls();
+
+        CauseCompanyStatsReconciler.Report report =
+                new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE, SOURCE_INDEX, 1, 1000,
+                        ShardedCounter.unsharded(), ThrottleRetryPolicy.none(), false).reconcile();
+
+        assertEquals(0, report.getCorrections());
+        assertEquals(2, dynamoDb.calls() - callsBefore);
+    }
+
+    @Test
+    public void testShardItemsAreSummedBeforeComparing() {
+        ShardedCounter shards = new ShardedCounter(4, Map.of());
+        boycotts("c1", "co1", 10);
+        stats("c1", "co1", 4);
+        stats("c1", "co1#shard-1", 3);
+        stats("c1", "co1#shard-3", 6);
+
+        CauseCompanyStatsReconciler.Report report = reconciler(shards, false).reconcile();
+
+        assertEquals(1, report.getPairs());
+        assertEquals(1, report.getCorrections());
+        assertEquals(3, report.getAbsoluteDrift());
+        assertEquals(Map.of("c1#co1", 10L), totals());
+    }
+
+    @Test
+    public void testRecountCoversShardsRecordedBeforeTheCountWasLowered() {
+        boycotts("c1", "co1", 12);
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .item(Map.of("cause_id", AttributeValue.fromS("c1"),
+                        "company_id", AttributeValue.fromS("co1"),
+                        "boycott_count", AttributeValue.fromN("4"),
+                        "shard_count", AttributeValue.fromN("4")))
+                .build());
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .item(Map.of("cause_id", AttributeValue.fromS("c1"),
+                        "company_id", AttributeValue.fromS("co1#shard-3"),
+                        "boycott_count", AttributeValue.fromN("6"),
+                        "shard_of", AttributeValue.fromS("co1")))
+                .build());
+
+        CauseCompanyStatsReconciler.Report report = reconciler(ShardedCounter.unsharded(), false).reconcile();
+
+        assertEquals(1, report.getPairs());
+        assertEquals(1, report.getCorrections());
+        assertEquals(2, report.getAbsoluteDrift());
+        assertEquals(Map.of("c1#co1", 12L), totals());
+    }
+
+    @Test
+    public void testDryRunReportsWithoutWriting() {
+        boycotts("c1", "co1", 2);
+        stats("c1", "co1", -3);
+
+        CauseCompanyStatsReconciler.Report report = reconciler(ShardedCounter.unsharded(), true).reconcile();
+
+        assertEquals(1, report.getCorrections());
+        assertEquals(5, report.getAbsoluteDrift());
+        assertEquals(Map.of("c1#co1", -3L), totals());
+    }
+
+    @Test
+    public void testManyItemsAcrossSegmentsAndPages() {
+        Map<String, Long> expected = new HashMap<>();
+        int items = 20_000;
+        for (int i = 0; i < items; i++) {
+            String causeId = "c" + (i % 7);
+            String companyId = "co" + (i % 41);
+            put("u" + i, causeId, companyId);
+            expected.merge(causeId + "#" + companyId, 1L, Long::sum);
+        }
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(SOURCE_TABLE)
+                .item(Map.of("user_id", AttributeValue.fromS("u-malformed"),
+                        "boycott_key", AttributeValue.fromS("x"),
+                        "cause_id", AttributeValue.fromS("c0")))
+                .build());
+
+        CauseCompanyStatsReconciler.Report report =
+                new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE, SOURCE_INDEX, 8, 10_000,
+                        ShardedCounter.unsharded(), ThrottleRetryPolicy.none(), false).reconcile();
+
+        assertEquals(items + 1, report.getItemsScanned());
+        assertEquals(1, report.getItemsSkipped());
+        assertEquals(expected.size(), report.getPairs());
+        assertEquals(expected, totals());
+    }
+
+    @Test
+    public void testBoycottRecordedBetweenScansIsNotUndone() {
+        boycotts("c1", "co1", 3);
+        stats("c1", "co1", 3);
+        boycotts("c1", "co2", 2);
+        stats("c1", "co2", 5);
+        // Lands after the source scan and before the stats scan, so the scans alone see drift of -1.
+        dynamoDb.beforeStatsScan = () -> {
+            put("u-live", "c1", "co1");
+            stats("c1", "co1", 4);
+        };
+
+        CauseCompanyStatsReconciler.Report report =
+                new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE, SOURCE_INDEX, 1, 1000,
+                        ShardedCounter.unsharded(), ThrottleRetryPolicy.none(), false).reconcile();
+
+        assertEquals(1, report.getUnsettled());
+        assertEquals(1, report.getCorrections());
+        assertEquals(Map.of("c1#co1", 4L, "c1#co2", 2L), totals());
+    }
+
+    @Test
+    public void testCorrectionsArePacedToTheWriteRate() {
+        for (int i = 0; i < 10; i++) {
+            boycotts("c1", "co" + i, 1);
+        }
+
+        long start = System.nanoTime();
+        CauseCompanyStatsReconciler.Report report =
+                new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE, SOURCE_INDEX, 4, 20,
+                        ShardedCounter.unsharded(), ThrottleRetryPolicy.none(), false).reconcile();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertEquals(10, report.getCorrections());
+        assertTrue(elapsedMillis >= 400, "10 writes at 20/s took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testFailedRecountIsReportedAndOtherPairsAreStillCorrected() {
+        boycotts("c1", "co1", 2);
+        boycotts("c1", "co2", 3);
+        dynamoDb.failingRecountCompany = "co1";
+
+        CauseCompanyStatsReconciler.Report report = reconciler(ShardedCounter.unsharded(), false).reconcile();
+
+        assertEquals(1, report.getFailures());
+        assertEquals(1, report.getCorrections());
+        assertEquals(Map.of("c1#co2", 3L), totals());
+    }
+
+    @Test
+    public void testPairsThatMissTheWriteRateAreDeferred() {
+        boycotts("c1", "co1", 2);
+        HotKeyRateLimiter exhausted = new HotKeyRateLimiter(1, 1, 1) {
+            @Override
+            public boolean acquire(String key, long deadlineNanos) {
+                return false;
+            }
+        };
+
+        CauseCompanyStatsReconciler.Report report = new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE,
+                SOURCE_INDEX, 1, exhausted, ShardedCounter.unsharded(), ThrottleRetryPolicy.none(), false).reconcile();
+
+        assertEquals(1, report.getDeferred());
+        assertEquals(0, report.getCorrections());
+        assertTrue(totals().isEmpty());
+    }
+
+    @Test
+    public void testIdsContainingSeparatorAreCorrectedAsRead() {
+        boycotts("c#1", "co1", 2);
+        stats("c#1", "co1", 5);
+
+        CauseCompanyStatsReconciler.Report report = reconciler(ShardedCounter.unsharded(), false).reconcile();
+
+        assertEquals(1, report.getCorrections());
+        assertEquals(0, report.getFailures());
+        assertEquals("2", dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME,
+                CauseCompanyStatsReader.key("c#1", "co1")).get("boycott_count").n());
+    }
+
+    private CauseCompanyStatsReconciler reconciler(ShardedCounter shards, boolean dryRun) {
+        return new CauseCompanyStatsReconciler(dynamoDb, SOURCE_TABLE, SOURCE_INDEX, 4, 1000, shards,
+                ThrottleRetryPolicy.none(), dryRun);
+    }
+
+    private void boycotts(String causeId, String companyId, int users) {
+        for (int i = 0; i < users; i++) {
+            put("u" + i, causeId, companyId);
+        }
+    }
+
+    private void put(String userId, String causeId, String companyId) {
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(SOURCE_TABLE)
+                .item(Map.of("user_id", AttributeValue.fromS(userId),
+                        "boycott_key", AttributeValue.fromS(causeId + "#" + companyId),
+                        "cause_id", AttributeValue.fromS(causeId),
+                        "company_id", AttributeValue.fromS(companyId)))
+                .build());
+    }
+
+    private void stats(String causeId, String companyId, long count) {
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .item(Map.of("cause_id", AttributeValue.fromS(causeId),
+                        "company_id", AttributeValue.fromS(companyId),
+                        "boycott_count", AttributeValue.fromN(Long.toString(count))))
+                .build());
+    }
+
+    // Runs beforeStatsScan once, just before the first page of the stats table is read, and fails
+    // the recount query of failingRecountCompany.
+    private static final class LiveWritesDynamoDbClient extends InMemoryDynamoDbClient {
+        volatile Runnable beforeStatsScan;
+        volatile String failingRecountCompany;
+
+        @Override
+        public QueryResponse query(QueryRequest request) {
+            AttributeValue companyId = request.expressionAttributeValues().get(":company_id");
+            if (companyId != null && companyId.s().equals(failingRecountCompany)) {
+                throw SdkClientException.create("Unable to execute HTTP request: Connection reset");
+            }
+            return super.query(request);
+        }
+
+        @Override
+        public ScanResponse scan(ScanRequest request) {
+            Runnable liveWrite = beforeStatsScan;
+            if (liveWrite != null && CauseCompanyStatsUpdater.TABLE_NAME.equals(request.tableName())) {
+                beforeStatsScan = null;
+                liveWrite.run();
+            }
+            return super.scan(request);
+        }
+    }
+
+    // boycott_count per pair with shard items merged.
+    private Map<String, Long> totals() {
+        Map<String, Long> totals = new HashMap<>();
+        for (Map<String, AttributeValue> item : dynamoDb.items(CauseCompanyStatsUpdater.TABLE_NAME)) {
+            String pairKey = CauseCompanyDelta.key(item.get("cause_id").s(),
+                    ShardedCounter.baseCompanyId(item.get("company_id").s()));
+            totals.merge(pairKey, CauseCompanyStatsReader.count(item), Long::sum);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,248 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import com.boycottpro.causecompanystats.model.LeaderboardEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CauseTopCompaniesStreamHandlerTest {
+
+    private static final int SIZE = 3;
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+    private final List<DynamodbEvent.DynamodbStreamRecord> pending = new ArrayList<>();
+    private HandlerConfig config;
+    private CauseCompanyStatsUpdater updater;
+    private CauseTopCompaniesStreamHandler handler;
+    private CauseTopCompaniesStore store;
+    private int sequence;
+
+    @BeforeEach
+    public void setUp() {
+        config = new HandlerConfig();
+        config.setLeaderboardSize(SIZE);
+        dynamoDb.createTable(config.getLeaderboardTable(), "cause_id", null);
+        wire();
+    }
+
+    @Test
+    public void testLeaderboardTracksIncrementsAndEvictions() {
+        for (int company = 0; company < 10; company++) {
+            for (int i = 0; i <= company; i++) {
+                write("c1", "co" + company, 1);
+            }
+        }
+        flush();
+
+        assertEquals(List.of("co9", "co8", "co7"), ids(store.readTop("c1")));
+        assertEquals(List.of(10L, 9L, 8L), counts(store.readTop("c1")));
+    }
+
+    @Test
+    public void testDecrementsBelowFloorTriggerRebuild() {
+        for (int company = 0; company < 10; company++) {
+            for (int i = 0; i <= company; i++) {
+                write("c1", "co" + company, 1);
+            }
+        }
+        flush();
+        for (int company = 5; company < 10; company++) {
+            for (int i = 0; i < 9; i++) {
+                write("c1", "co" + company, -1);
+            }
+        }
+        flush();
+
+        assertEquals(truth("c1"), store.readTop("c1").stream()
+                .map(e -> e.getCompany_id() + "=" + e.getBoycott_count()).collect(Collectors.toList()));
+        assertEquals(List.of("co4", "co3", "co2"), ids(store.readTop("c1")));
+    }
+
+    @Test
+    public void testRandomWorkloadMatchesTableTotals() {
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            String causeId = "c" + random.nextInt(3);
+            int company = (int) Math.abs(random.nextGaussian() * 8);
+            write(causeId, "co" + company, random.nextInt(3) == 0 ? -1 : 1);
+            if (random.nextInt(40) == 0) {
+                flush();
+            }
+        }
+        flush();
+
+        for (String causeId : List.of("c0", "c1", "c2")) {
+            List<Long> expected = truth(causeId).stream()
+                    .map(entry -> Long.parseLong(entry.substring(entry.indexOf('=') + 1)))
+                    .collect(Collectors.toList());
+            assertEquals(expected, counts(store.readTop(causeId)), causeId);
+        }
+    }
+
+    @Test
+    public void testShardedTotalsAreMergedAcrossShards() {
+        config.setCounterShards(4);
+        wire();
+        Random random = new Random(3);
+        for (int i = 0; i < 400; i++) {
+            updaterWrite("c1", "co" + random.nextInt(6), 1, "sub-" + random.nextInt(50));
+        }
+        flush();
+
+        CauseCompanyStatsReader reader = new CauseCompanyStatsReader(dynamoDb, config.shardedCounter());
+        for (LeaderboardEntry entry : store.readTop("c1")) {
+            assertEquals(reader.readCount("c1", entry.getCompany_id()), entry.getBoycott_count());
+            assertFalse(entry.getCompany_id().contains(ShardedCounter.SHARD_SEPARATOR));
+        }
+        assertEquals(SIZE, store.readTop("c1").size());
+    }
+
+    @Test
+    public void testReadIsOneGetItem() {
+        write("c1", "co1", 1);
+        flush();
+        long before = dynamoDb.calls();
+
+        assertEquals(List.of("co1"), ids(store.readTop("c1")));
+        assertEquals(1, dynamoDb.calls() - before);
+    }
+
+    @Test
+    public void testConcurrentChangeIsRetriedUnderVersionCheck() {
+        store.update("c1", board -> board.apply("co1", "Company 1", 5));
+        boolean[] interfered = {false};
+
+        store.update("c1", board -> {
+            if (!interfered[0]) {
+                interfered[0] = true;
+                store.update("c1", other -> other.apply("co2", "Company 2", 7));
+            }
+            board.apply("co3", "Company 3", 6);
+        });
+
+        assertEquals(List.of("co2", "co3", "co1"), ids(store.readTop("c1")));
+    }
+
+    @Test
+    public void testFailedCauseReportsItsFirstRecord() {
+        CauseTopCompaniesStreamHandler broken = new CauseTopCompaniesStreamHandler(new InMemoryDynamoDbClient(), config);
+        write("c1", "co1", 1);
+        write("c2", "co1", 1);
+        write("c1", "co2", 1);
+
+        StreamsEventResponse response = broken.handleRequest(event(), null);
+
+        assertEquals(List.of("1", "2"), response.getBatchItemFailures().stream()
+                .map(StreamsEventResponse.BatchItemFailure::getItemIdentifier)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBoardKeepsTwiceTheSizeAndRaisesFloorOnEviction() {
+        CauseTopCompaniesBoard board = new CauseTopCompaniesBoard(2);
+        for (int i = 1; i <= 5; i++) {
+            board.apply("co" + i, null, i);
+        }
+
+        assertEquals(4, board.entries().size());
+        assertEquals(1, board.getFloor());
+        board.apply("co0", null, 1);
+        assertEquals(4, board.entries().size());
+        board.apply("co5", null, 0);
+        board.apply("co4", null, 1);
+        assertFalse(board.needsRebuild());
+        board.apply("co2", null, 0);
+        board.apply("co3", null, 0);
+        assertTrue(board.needsRebuild());
+    }
+
+    private void wire() {
+        updater = new CauseCompanyStatsUpdater(dynamoDb, config.shardedCounter());
+        handler = new CauseTopCompaniesStreamHandler(dynamoDb, config);
+        store = CauseTopCompaniesStore.fromConfig(dynamoDb, config);
+    }
+
+    private void write(String causeId, String companyId, int delta) {
+        updaterWrite(causeId, companyId, delta, null);
+    }
+
+    // Applies the write through the updater and records the stream change it would produce.
+    private void updaterWrite(String causeId, String companyId, int delta, String sub) {
+        ShardedCounter shards = config.shardedCounter();
+        int shard = shards.pickShard(causeId, companyId, sub);
+        Map<String, AttributeValue> key = CauseCompanyStatsReader.key(causeId,
+                ShardedCounter.shardCompanyId(companyId, shard));
+        Map<String, AttributeValue> before = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME, key);
+        dynamoDb.updateItem(CauseCompanyStatsUpdater.buildRequest(causeId, companyId, shard, delta,
+                delta > 0 ? "Cause" : null, delta > 0 ? "Company " + companyId : null));
+        Map<String, AttributeValue> after = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME, key);
+        pending.add(record(before == null ? "INSERT" : "MODIFY", key, before, after));
+    }
+
+    private void flush() {
+        StreamsEventResponse response = handler.handleRequest(event(), null);
+        assertTrue(response.getBatchItemFailures().isEmpty());
+    }
+
+    private DynamodbEvent event() {
+        DynamodbEvent event = new DynamodbEvent();
+        event.setRecords(new ArrayList<>(pending));
+        pending.clear();
+        return event;
+    }
+
+    private DynamodbEvent.DynamodbStreamRecord record(String eventName, Map<String, AttributeValue> key,
+                                                      Map<String, AttributeValue> before,
+                                                      Map<String, AttributeValue> after) {
+        StreamRecord change = new StreamRecord();
+        change.setKeys(image(key));
+        change.setOldImage(before != null ? image(before) : null);
+        change.setNewImage(image(after));
+        change.setSequenceNumber(String.valueOf(++sequence));
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName(eventName);
+        record.setDynamodb(change);
+        return record;
+    }
+
+    private static Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image(
+            Map<String, AttributeValue> item) {
+        Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image = new HashMap<>();
+        item.forEach((name, value) -> {
+            com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue converted =
+                    new com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue();
+            converted.setS(value.s());
+            converted.setN(value.n());
+            image.put(name, converted);
+        });
+        return image;
+    }
+
+    // The top entries of the cause computed straight from the table, as "company=count".
+    private List<String> truth(String causeId) {
+        List<LeaderboardEntry> totals = store.queryTotals(causeId);
+        totals.removeIf(entry -> entry.getBoycott_count() <= 0);
+        totals.sort(CauseTopCompaniesBoard.RANKING);
+        return totals.subList(0, Math.min(SIZE, totals.size())).stream()
+                .map(e -> e.getCompany_id() + "=" + e.getBoycott_count()).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(List<LeaderboardEntry> entries) {
+        return entries.stream().map(LeaderboardEntry::getCompany_id).collect(Collectors.toList());
+    }
+
+    private static List<Long> counts(List<LeaderboardEntry> entries) {
+        return entries.stream().map(LeaderboardEntry::getBoycott_count).collect(Collectors.toList());
+    }
+}
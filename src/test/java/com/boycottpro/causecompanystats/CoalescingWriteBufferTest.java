@@ -0,0 +1,159 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.boycottpro.causecompanystats.model.IncrementForm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoalescingWriteBufferTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testConcurrentServerRequestsOnOneKeyCoalesceIntoFewWrites() throws Exception {
+        DynamoDbClient dynamoDb = mock(DynamoDbClient.class);
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger netDelta = new AtomicInteger();
+        countWrites(dynamoDb, writes, netDelta);
+        HandlerConfig config = new HandlerConfig();
+        config.setCoalesceWindowMillis(100);
+        IncrementCauseCompanyStatsCore core = new IncrementCauseCompanyStatsCore(dynamoDb, config,
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false),
+                new CauseCompanyStatsCache(100, 60_000), true);
+        String body = objectMapper.writeValueAsString(new IncrementForm("Company", "Cause", true));
+
+        int callers = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IncrementCauseCompanyStatsCore.Response>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return core.handle(() -> "11111111-2222-3333-4444-555555555555",
+                        Map.of("cause_id", "c123", "company_id", "co456"), Map.of(), body, null);
+            }));
+        }
+        start.countDown();
+        for (Future<IncrementCauseCompanyStatsCore.Response> result : results) {
+            IncrementCauseCompanyStatsCore.Response response = result.get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatusCode());
+            assertTrue(response.getBody().contains("\"recordUpdated\":true"));
+        }
+        executor.shutdown();
+
+        assertEquals(callers, netDelta.get());
+        assertTrue(writes.get() <= 5, "expected far fewer writes than callers, got " + writes.get());
+    }
+
+    @Test
+    public void testLambdaHandlerIgnoresCoalesceWindow() throws Exception {
+        DynamoDbClient dynamoDb = mock(DynamoDbClient.class);
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger netDelta = new AtomicInteger();
+        countWrites(dynamoDb, writes, netDelta);
+        HandlerConfig config = new HandlerConfig();
+        config.setCoalesceWindowMillis(5_000);
+        IncrementCauseCompanyStatsHandler handler = new IncrementCauseCompanyStatsHandler(dynamoDb, config,
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            APIGatewayProxyResponseEvent response = handler.handleRequest(
+                    event("c123", "co456", new IncrementForm("Company", "Cause", true)), null);
+            assertEquals(200, response.getStatusCode());
+        }
+
+        assertEquals(3, writes.get());
+        assertEquals(3, netDelta.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "requests waited for the window");
+    }
+
+    @Test
+    public void testNetDeltaAndMetadataAreFlushedTogether() {
+        CoalescingWriteBuffer buffer = new CoalescingWriteBuffer(1);
+        List<Object[]> flushed = new ArrayList<>();
+
+        boolean result = buffer.submit("c1", "co1", 1, "Cause", "Company",
+                (causeId, companyId, delta, causeDesc, companyName) ->
+                        flushed.add(new Object[]{causeId, companyId, delta, causeDesc, companyName}));
+
+        assertTrue(result);
+        assertEquals(1, flushed.size());
+        assertArrayEquals(new Object[]{"c1", "co1", 1, "Cause", "Company"}, flushed.get(0));
+        assertEquals(0, buffer.pendingKeys());
+    }
+
+    @Test
+    public void testZeroNetDeltaWithoutMetadataSkipsWrite() {
+        CoalescingWriteBuffer buffer = new CoalescingWriteBuffer(1);
+        AtomicInteger writes = new AtomicInteger();
+
+        assertTrue(buffer.submit("c1", "co1", 0, null, null,
+                (causeId, companyId, delta, causeDesc, companyName) -> writes.incrementAndGet()));
+
+        assertEquals(0, writes.get());
+    }
+
+    @Test
+    public void testWriteFailureIsRethrownToCaller() {
+        CoalescingWriteBuffer buffer = new CoalescingWriteBuffer(1);
+
+        DynamoDbException thrown = assertThrows(DynamoDbException.class, () ->
+                buffer.submit("c1", "co1", -1, null, null, (causeId, companyId, delta, causeDesc, companyName) -> {
+                    throw DynamoDbException.builder().message("DB error").build();
+                }));
+
+        assertEquals("DB error", thrown.getMessage());
+    }
+
+    @Test
+    public void testNonPositiveWindowIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CoalescingWriteBuffer(0));
+    }
+
+    private static void countWrites(DynamoDbClient dynamoDb, AtomicInteger writes, AtomicInteger netDelta) {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            UpdateItemRequest request = invocation.getArgument(0);
+            writes.incrementAndGet();
+            netDelta.addAndGet(Integer.parseInt(request.expressionAttributeValues().get(":delta").n()));
+            return UpdateItemResponse.builder().build();
+        });
+    }
+
+    private APIGatewayProxyRequestEvent event(String causeId, String companyId, IncrementForm form) throws Exception {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, String> claims = Map.of("sub", "11111111-2222-3333-4444-555555555555");
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", claims);
+
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", causeId, "company_id", companyId));
+        event.setBody(objectMapper.writeValueAsString(form));
+        return event;
+    }
+}
@@ -0,0 +1,139 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GetCauseCompanyStatsHandlerTest {
+
+    private static final String SUB = "11111111-2222-3333-4444-555555555555";
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+    private final CauseCompanyStatsCache cache = new CauseCompanyStatsCache(1_000, 60_000);
+    private final ByteArrayOutputStream metricsOutput = new ByteArrayOutputStream();
+
+    @Test
+    public void testManyCompaniesAreReadInChunksThenFromCache() throws Exception {
+        CauseCompanyStatsUpdater updater = new CauseCompanyStatsUpdater(dynamoDb);
+        List<String> companyIds = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            companyIds.add("co" + i);
+            updater.apply("c1", "co" + i, i, null, null);
+        }
+        GetCauseCompanyStatsHandler handler = readHandler(new HandlerConfig());
+        APIGatewayProxyRequestEvent event = event("c1", null, String.join(",", companyIds) + ",unknown");
+
+        long before = dynamoDb.calls();
+        JsonNode first = objectMapper.readTree(handler.handleRequest(event, null).getBody()).get("results");
+        assertEquals(3, dynamoDb.calls() - before);
+        assertEquals(251, first.size());
+        assertEquals(42, first.get(42).get("boycott_count").asLong());
+        assertEquals(0, first.get(250).get("boycott_count").asLong());
+
+        JsonNode second = objectMapper.readTree(handler.handleRequest(event, null).getBody()).get("results");
+        assertEquals(3, dynamoDb.calls() - before);
+        assertEquals(first, second);
+
+        String[] lines = metricsOutput.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(0.0, objectMapper.readTree(lines[0]).get("CacheHitRatio").asDouble());
+        assertEquals(100.0, objectMapper.readTree(lines[1]).get("CacheHitRatio").asDouble());
+        assertEquals(251, objectMapper.readTree(lines[1]).get("CacheHits").asInt());
+        assertEquals(50.0, cache.hitRatio());
+    }
+
+    @Test
+    public void testIncrementInSameContainerUpdatesCachedCount() throws Exception {
+        GetCauseCompanyStatsHandler reads = readHandler(new HandlerConfig());
+        IncrementCauseCompanyStatsHandler increments = incrementHandler(new HandlerConfig());
+
+        assertEquals(0, count(reads.handleRequest(event("c1", "co1", null), null)));
+        increments.handleRequest(incrementEvent("c1", "co1"), null);
+        increments.handleRequest(incrementEvent("c1", "co1"), null);
+        long before = dynamoDb.calls();
+
+        assertEquals(2, count(reads.handleRequest(event("c1", "co1", null), null)));
+        assertEquals(0, dynamoDb.calls() - before);
+    }
+
+    @Test
+    public void testIncrementOfShardedPairInvalidatesCachedCount() throws Exception {
+        HandlerConfig config = new HandlerConfig();
+        config.setCounterShards(4);
+        GetCauseCompanyStatsHandler reads = readHandler(config);
+        IncrementCauseCompanyStatsHandler increments = incrementHandler(config);
+
+        assertEquals(0, count(reads.handleRequest(event("c1", "co1", null), null)));
+        increments.handleRequest(incrementEvent("c1", "co1"), null);
+        long before = dynamoDb.calls();
+
+        assertEquals(1, count(reads.handleRequest(event("c1", "co1", null), null)));
+        assertEquals(1, dynamoDb.calls() - before);
+    }
+
+    @Test
+    public void testRequestsWithoutCompaniesAreRejected() {
+        GetCauseCompanyStatsHandler handler = readHandler(new HandlerConfig());
+
+        assertEquals(400, handler.handleRequest(event("c1", null, null), null).getStatusCode());
+        assertEquals(400, handler.handleRequest(event("c1", null, " , "), null).getStatusCode());
+        assertEquals(400, handler.handleRequest(event(null, "co1", null), null).getStatusCode());
+        assertEquals(401, handler.handleRequest(new APIGatewayProxyRequestEvent(), null).getStatusCode());
+    }
+
+    private GetCauseCompanyStatsHandler readHandler(HandlerConfig config) {
+        return new GetCauseCompanyStatsHandler(dynamoDb, config,
+                new MetricsLogger(new PrintStream(metricsOutput, true, StandardCharsets.UTF_8)), cache);
+    }
+
+    private IncrementCauseCompanyStatsHandler incrementHandler(HandlerConfig config) {
+        return new IncrementCauseCompanyStatsHandler(dynamoDb, config,
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false), cache);
+    }
+
+    private long count(APIGatewayProxyResponseEvent response) throws Exception {
+        assertEquals(200, response.getStatusCode());
+        return objectMapper.readTree(response.getBody()).get("boycott_count").asLong();
+    }
+
+    private static APIGatewayProxyRequestEvent event(String causeId, String companyId, String companyIds) {
+        APIGatewayProxyRequestEvent event = authorized();
+        Map<String, String> path = new HashMap<>();
+        path.put("cause_id", causeId);
+        path.put("company_id", companyId);
+        event.setPathParameters(path);
+        if (companyIds != null) {
+            event.setQueryStringParameters(Map.of("company_ids", companyIds));
+        }
+        return event;
+    }
+
+    private static APIGatewayProxyRequestEvent incrementEvent(String causeId, String companyId) {
+        APIGatewayProxyRequestEvent event = authorized();
+        event.setPathParameters(Map.of("cause_id", causeId, "company_id", companyId));
+        event.setBody("{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":true}");
+        return event;
+    }
+
+    private static APIGatewayProxyRequestEvent authorized() {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", SUB));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        return event;
+    }
+}
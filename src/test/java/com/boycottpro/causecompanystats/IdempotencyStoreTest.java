@@ -0,0 +1,302 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+
+    private static final String SUB = "11111111-2222-3333-4444-555555555555";
+    private static final String TABLE = new HandlerConfig().getIdempotencyTable();
+
+    private final ScriptedDynamoDbClient dynamoDb = new ScriptedDynamoDbClient();
+
+    @Test
+    public void testRetryInSameContainerIsAnsweredFromCache() {
+        IncrementCauseCompanyStatsHandler handler = handler();
+
+        APIGatewayProxyResponseEvent first = handler.handleRequest(event(Map.of("Idempotency-Key", "k1"), null), null);
+        APIGatewayProxyResponseEvent retry = handler.handleRequest(event(Map.of("idempotency-key", "k1"), null), null);
+
+        assertEquals(200, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(1, count());
+        assertEquals(1, dynamoDb.claims.get());
+        assertEquals(IdempotencyStore.COMPLETED, status("k1"));
+    }
+
+    @Test
+    public void testRetryInOtherContainerIsStoppedByCompletedRecord() {
+        handler().handleRequest(event(null, "k2"), null);
+        APIGatewayProxyResponseEvent retry = handler().handleRequest(event(null, "k2"), null);
+
+        assertEquals(200, retry.getStatusCode());
+        assertTrue(retry.getBody().contains("\"recordUpdated\":true"));
+        assertEquals(1, count());
+        assertEquals(2, dynamoDb.claims.get());
+    }
+
+    @Test
+    public void testFailedWriteReleasesKeySoRetryIsApplied() {
+        dynamoDb.failingStatsWrites.set(1);
+        IncrementCauseCompanyStatsHandler handler = handler();
+
+        assertEquals(500, handler.handleRequest(event(Map.of("Idempotency-Key", "k3"), null), null).getStatusCode());
+        assertNull(record("k3"));
+        assertEquals(200, handler.handleRequest(event(Map.of("Idempotency-Key", "k3"), null), null).getStatusCode());
+
+        assertEquals(1, count());
+        assertEquals(IdempotencyStore.COMPLETED, status("k3"));
+    }
+
+    @Test
+    public void testDuplicateWhileFirstIsInFlightIsRetryableAndAppliedAfterFirstFails() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch finishWrite = new CountDownLatch(1);
+        dynamoDb.blockNextStatsWrite(writeStarted, finishWrite);
+        dynamoDb.failingStatsWrites.set(1);
+
+        CompletableFuture<APIGatewayProxyResponseEvent> first = CompletableFuture.supplyAsync(() ->
+                handler().handleRequest(event(Map.of("Idempotency-Key", "k4"), null), null));
+        assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+        assertEquals(IdempotencyStore.IN_PROGRESS, status("k4"));
+
+        APIGatewayProxyResponseEvent duplicate =
+                handler().handleRequest(event(Map.of("Idempotency-Key", "k4"), null), null);
+        assertEquals(409, duplicate.getStatusCode());
+        assertEquals("1", duplicate.getHeaders().get("Retry-After"));
+
+        finishWrite.countDown();
+        assertEquals(500, first.get(10, TimeUnit.SECONDS).getStatusCode());
+
+        APIGatewayProxyResponseEvent retry = handler().handleRequest(event(Map.of("Idempotency-Key", "k4"), null), null);
+        assertEquals(200, retry.getStatusCode());
+        assertEquals(1, count());
+        assertEquals(IdempotencyStore.COMPLETED, status("k4"));
+    }
+
+    @Test
+    public void testClaimLeftByDeadInvocationBlocksOnlyUntilLeaseEnds() {
+        long now = System.currentTimeMillis() / 1000L;
+        putRecord("k5", IdempotencyStore.IN_PROGRESS, now + 30);
+        putRecord("k6", IdempotencyStore.IN_PROGRESS, now - 1);
+
+        assertEquals(409, handler().handleRequest(event(Map.of("Idempotency-Key", "k5"), null), null).getStatusCode());
+        assertEquals(0, count());
+        assertEquals(200, handler().handleRequest(event(Map.of("Idempotency-Key", "k6"), null), null).getStatusCode());
+        assertEquals(1, count());
+    }
+
+    @Test
+    public void testLeaseEndsShortlyAfterCallerDeadline() {
+        IdempotencyStore store = new IdempotencyStore(dynamoDb, TABLE, 86_400, 10);
+        long now = System.currentTimeMillis() / 1000L;
+        long lease = store.lease(System.nanoTime() + TimeUnit.SECONDS.toNanos(20));
+
+        assertEquals(IdempotencyStore.Claim.CLAIMED, store.claim(key("k7"), lease));
+
+        long expiresAt = Long.parseLong(record("k7").get(IdempotencyStore.EXPIRES_AT_ATTRIBUTE).n());
+        assertEquals(lease, expiresAt);
+        assertTrue(expiresAt >= now + 20 && expiresAt <= now + 27, "lease ends at " + (expiresAt - now) + " s");
+        assertEquals(IdempotencyStore.Claim.IN_PROGRESS, store.claim(key("k7"), store.lease(System.nanoTime())));
+        store.completed(key("k7"));
+        assertTrue(Long.parseLong(record("k7").get(IdempotencyStore.EXPIRES_AT_ATTRIBUTE).n()) >= now + 86_400);
+    }
+
+    @Test
+    public void testReleaseLeavesNewerClaimInPlace() {
+        IdempotencyStore store = new IdempotencyStore(dynamoDb, TABLE, 86_400, 10);
+        long now = System.currentTimeMillis() / 1000L;
+        putRecord("k9", IdempotencyStore.IN_PROGRESS, now + 30);
+
+        store.release(key("k9"), now + 10);
+        assertEquals(IdempotencyStore.IN_PROGRESS, status("k9"));
+        store.release(key("k9"), now + 30);
+        assertNull(record("k9"));
+
+        putRecord("k10", IdempotencyStore.COMPLETED, now + 30);
+        store.release(key("k10"), now + 30);
+        assertEquals(IdempotencyStore.COMPLETED, status("k10"));
+    }
+
+    @Test
+    public void testRecordWithoutStatusIsTreatedAsCompleted() {
+        putRecord("k8", null, System.currentTimeMillis() / 1000L + 3_600);
+
+        assertEquals(200, handler().handleRequest(event(Map.of("Idempotency-Key", "k8"), null), null).getStatusCode());
+        assertEquals(0, count());
+    }
+
+    @Test
+    public void testRequestsWithoutKeyAreNeverDeduplicated() {
+        IncrementCauseCompanyStatsHandler handler = handler();
+
+        handler.handleRequest(event(null, null), null);
+        handler.handleRequest(event(Map.of("Idempotency-Key", " "), null), null);
+
+        assertEquals(2, count());
+        assertEquals(0, dynamoDb.claims.get());
+    }
+
+    @Test
+    public void testKeysAreScopedToCallerCounterAndDirection() {
+        String key = IdempotencyStore.scopedKey("sub-a", "c1", "co1", true, " k1");
+        assertEquals("sub-a#c1#co1#increment#k1", key);
+        assertNotEquals(key, IdempotencyStore.scopedKey("sub-b", "c1", "co1", true, "k1"));
+        assertNotEquals(key, IdempotencyStore.scopedKey("sub-a", "c2", "co1", true, "k1"));
+        assertNotEquals(key, IdempotencyStore.scopedKey("sub-a", "c1", "co2", true, "k1"));
+        assertNotEquals(key, IdempotencyStore.scopedKey("sub-a", "c1", "co1", false, "k1"));
+        assertNull(IdempotencyStore.scopedKey("sub-a", "c1", "co1", true, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> IdempotencyStore.scopedKey("sub-a", "c1", "co1", true, "k".repeat(256)));
+    }
+
+    @Test
+    public void testKeyReusedForOtherCounterOrDirectionIsApplied() {
+        IncrementCauseCompanyStatsHandler handler = handler();
+        Map<String, String> headers = Map.of("Idempotency-Key", "k12");
+
+        assertEquals(200, handler.handleRequest(event(headers, null), null).getStatusCode());
+        assertEquals(200, handler.handleRequest(event(headers, null, "co789", true), null).getStatusCode());
+        assertEquals(200, handler.handleRequest(event(headers, null, "co456", false), null).getStatusCode());
+
+        assertEquals(0, count());
+        assertEquals(1, count("co789"));
+        assertEquals(3, dynamoDb.claims.get());
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsedAndExpiredEntries() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<String, String> cache = new TtlCache<>(2, 1000, now::get);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+
+        now.addAndGet(999_000_000L);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(1_000_000L);
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    private IncrementCauseCompanyStatsHandler handler() {
+        return new IncrementCauseCompanyStatsHandler(dynamoDb, new HandlerConfig(),
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false));
+    }
+
+    private long count() {
+        return count("co456");
+    }
+
+    private long count(String companyId) {
+        Map<String, AttributeValue> item = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME,
+                CauseCompanyStatsReader.key("c123", companyId));
+        return item != null ? CauseCompanyStatsReader.count(item) : 0;
+    }
+
+    private static String key(String key) {
+        return IdempotencyStore.scopedKey(SUB, "c123", "co456", true, key);
+    }
+
+    private Map<String, AttributeValue> record(String key) {
+        return dynamoDb.item(TABLE, Map.of(IdempotencyStore.KEY_ATTRIBUTE, AttributeValue.fromS(key(key))));
+    }
+
+    private String status(String key) {
+        Map<String, AttributeValue> record = record(key);
+        return record != null ? record.get(IdempotencyStore.STATUS_ATTRIBUTE).s() : null;
+    }
+
+    private void putRecord(String key, String status, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(IdempotencyStore.KEY_ATTRIBUTE, AttributeValue.fromS(key(key)));
+        item.put(IdempotencyStore.EXPIRES_AT_ATTRIBUTE, AttributeValue.fromN(String.valueOf(expiresAt)));
+        if (status != null) {
+            item.put(IdempotencyStore.STATUS_ATTRIBUTE, AttributeValue.fromS(status));
+        }
+        dynamoDb.putItem(PutItemRequest.builder().tableName(TABLE).item(item).build());
+    }
+
+    private static APIGatewayProxyRequestEvent event(Map<String, String> headers, String bodyKey) {
+        return event(headers, bodyKey, "co456", true);
+    }
+
+    private static APIGatewayProxyRequestEvent event(Map<String, String> headers, String bodyKey, String companyId,
+                                                     boolean increment) {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", SUB));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "c123", "company_id", companyId));
+        event.setHeaders(headers);
+        event.setBody("{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":" + increment
+                + (bodyKey != null ? ",\"idempotency_key\":\"" + bodyKey + "\"" : "") + "}");
+        return event;
+    }
+
+    // Counts conditional claims on the dedupe table, and can fail or hold counter writes.
+    private static final class ScriptedDynamoDbClient extends InMemoryDynamoDbClient {
+        final AtomicInteger claims = new AtomicInteger();
+        final AtomicInteger failingStatsWrites = new AtomicInteger();
+        private volatile CountDownLatch writeStarted;
+        private volatile CountDownLatch finishWrite;
+
+        void blockNextStatsWrite(CountDownLatch started, CountDownLatch finish) {
+            this.writeStarted = started;
+            this.finishWrite = finish;
+        }
+
+        @Override
+        public PutItemResponse putItem(PutItemRequest request) {
+            if (TABLE.equals(request.tableName()) && request.conditionExpression() != null) {
+                claims.incrementAndGet();
+            }
+            return super.putItem(request);
+        }
+
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+            if (CauseCompanyStatsUpdater.TABLE_NAME.equals(request.tableName())) {
+                CountDownLatch started = writeStarted;
+                if (started != null) {
+                    writeStarted = null;
+                    started.countDown();
+                    try {
+                        finishWrite.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failingStatsWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw DynamoDbException.builder().message("DB error").build();
+                }
+            }
+            return super.updateItem(request);
+        }
+    }
+}
@@ -0,0 +1,828 @@
+package com.boycottpro.causecompanystats;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A DynamoDbClient that keeps its tables in memory and evaluates the expressions this service
+ * sends: SET lists of plain values, {@code if_not_exists} and {@code +}/{@code -} arithmetic, ADD,
+ * REMOVE, and condition expressions built from comparisons, {@code attribute_exists},
+ * {@code attribute_not_exists}, {@code begins_with}, BETWEEN, AND, OR and NOT; a failed condition
+ * carries the current item when ReturnValuesOnConditionCheckFailure is ALL_OLD. Each item is
+ * updated atomically, as in DynamoDB; there is no throttling and every call costs one unit.
+ * Query and Scan pages hold at most {@link #QUERY_PAGE_SIZE} items, standing in for the 1 MB page
+ * limit. A Query may name an index added with {@link #createIndex}, which holds only the items
+ * carrying its key attributes, and with Select COUNT returns the count without items. A parallel Scan assigns each item to a segment by the hash of its key.
+ * TransactWriteItems (Update items only) is all-or-nothing against other transactions; single-item
+ * writes racing a transaction are not isolated from it.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    static final int QUERY_PAGE_SIZE = 100;
+    private final Map<String, String[]> keySchemas = new ConcurrentHashMap<>();
+    private final Map<String, String[]> indexSchemas = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentHashMap<List<String>, Map<String, AttributeValue>>> tables =
+            new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final long latencyMillis;
+
+    public InMemoryDynamoDbClient() {
+        this(0);
+    }
+
+    public InMemoryDynamoDbClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        createTable(CauseCompanyStatsUpdater.TABLE_NAME, "cause_id", "company_id");
+        createTable(new HandlerConfig().getIdempotencyTable(), IdempotencyStore.KEY_ATTRIBUTE, null);
+    }
+
+    public InMemoryDynamoDbClient createTable(String tableName, String partitionKey, String sortKey) {
+        keySchemas.put(tableName, sortKey == null ? new String[]{partitionKey} : new String[]{partitionKey, sortKey});
+        tables.putIfAbsent(tableName, new ConcurrentHashMap<>());
+        return this;
+    }
+
+    public InMemoryDynamoDbClient createIndex(String tableName, String indexName, String partitionKey,
+                                              String sortKey) {
+        indexSchemas.put(tableName + "/" + indexName,
+                sortKey == null ? new String[]{partitionKey} : new String[]{partitionKey, sortKey});
+        return this;
+    }
+
+    public Map<String, AttributeValue> item(String tableName, Map<String, AttributeValue> key) {
+        return table(tableName).get(itemKey(tableName, key));
+    }
+
+    public List<Map<String, AttributeValue>> items(String tableName) {
+        return new ArrayList<>(table(tableName).values());
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        call();
+        Expressions expressions = new Expressions(request.expressionAttributeNames(),
+                request.expressionAttributeValues());
+        List<Update> updates = expressions.parseUpdate(request.updateExpression());
+        Condition condition = expressions.parseCondition(request.conditionExpression());
+        Map<String, AttributeValue>[] result = newResult();
+        table(request.tableName()).compute(itemKey(request.tableName(), request.key()), (k, current) -> {
+            Map<String, AttributeValue> before = current != null ? current : Map.of();
+            if (condition != null && !condition.test(before)) {
+                throw conditionFailed(request.returnValuesOnConditionCheckFailure(), current);
+            }
+            Map<String, AttributeValue> after = new HashMap<>(before);
+            after.putAll(request.key());
+            Map<String, AttributeValue> updated = new HashMap<>();
+            for (Update update : updates) {
+                AttributeValue value = update.apply(before);
+                if (value == null) {
+                    after.remove(update.attribute);
+                } else {
+                    after.put(update.attribute, value);
+                    updated.put(update.attribute, value);
+                }
+            }
+            result[0] = returnValues(request.returnValues(), current, after, updated);
+            return Map.copyOf(after);
+        });
+        UpdateItemResponse.Builder response = UpdateItemResponse.builder()
+                .consumedCapacity(capacity(request.tableName(), request.returnConsumedCapacity()));
+        return result[0] != null ? response.attributes(result[0]).build() : response.build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        call();
+        Expressions expressions = new Expressions(request.expressionAttributeNames(),
+                request.expressionAttributeValues());
+        Condition condition = expressions.parseCondition(request.conditionExpression());
+        Map<String, AttributeValue>[] result = newResult();
+        table(request.tableName()).compute(itemKey(request.tableName(), request.item()), (k, current) -> {
+            if (condition != null && !condition.test(current != null ? current : Map.of())) {
+                throw conditionFailed(request.returnValuesOnConditionCheckFailure(), current);
+            }
+            result[0] = request.returnValues() == ReturnValue.ALL_OLD ? current : null;
+            return Map.copyOf(request.item());
+        });
+        PutItemResponse.Builder response = PutItemResponse.builder()
+                .consumedCapacity(capacity(request.tableName(), request.returnConsumedCapacity()));
+        return result[0] != null ? response.attributes(result[0]).build() : response.build();
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        call();
+        Expressions expressions = new Expressions(request.expressionAttributeNames(),
+                request.expressionAttributeValues());
+        Condition condition = expressions.parseCondition(request.conditionExpression());
+        Map<String, AttributeValue>[] result = newResult();
+        table(request.tableName()).compute(itemKey(request.tableName(), request.key()), (k, current) -> {
+            if (condition != null && !condition.test(current != null ? current : Map.of())) {
+                throw conditionFailed(request.returnValuesOnConditionCheckFailure(), current);
+            }
+            result[0] = request.returnValues() == ReturnValue.ALL_OLD ? current : null;
+            return null;
+        });
+        DeleteItemResponse.Builder response = DeleteItemResponse.builder()
+                .consumedCapacity(capacity(request.tableName(), request.returnConsumedCapacity()));
+        return result[0] != null ? response.attributes(result[0]).build() : response.build();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        call();
+        Map<String, AttributeValue> item = table(request.tableName()).get(itemKey(request.tableName(), request.key()));
+        GetItemResponse.Builder response = GetItemResponse.builder()
+                .consumedCapacity(capacity(request.tableName(), request.returnConsumedCapacity()));
+        return item != null
+                ? response.item(project(item, request.projectionExpression(), request.expressionAttributeNames())).build()
+                : response.build();
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        call();
+        Expressions expressions = new Expressions(request.expressionAttributeNames(),
+                request.expressionAttributeValues());
+        Condition keyCondition = expressions.parseCondition(request.keyConditionExpression());
+        Condition filter = expressions.parseCondition(request.filterExpression());
+        if (keyCondition == null) {
+            throw invalid("KeyConditionExpression is required");
+        }
+        String[] tableSchema = keySchemas.get(request.tableName());
+        String[] schema = tableSchema;
+        if (request.indexName() != null) {
+            schema = indexSchemas.get(request.tableName() + "/" + request.indexName());
+            if (schema == null) {
+                throw invalid("The table does not have the specified index: " + request.indexName());
+            }
+        }
+        List<Map<String, AttributeValue>> matching = new ArrayList<>();
+        for (Map<String, AttributeValue> item : table(request.tableName()).values()) {
+            if (hasAttributes(item, schema) && keyCondition.test(item)) {
+                matching.add(item);
+            }
+        }
+        if (schema.length > 1) {
+            String[] sortOn = schema;
+            // Index entries may share a sort key; the table key orders them so pages stay stable.
+            Comparator<Map<String, AttributeValue>> bySortKey = Comparator
+                    .<Map<String, AttributeValue>, AttributeValue>comparing(item -> item.get(sortOn[1]),
+                            InMemoryDynamoDbClient::compare)
+                    .thenComparing(item -> itemKey(request.tableName(), item).toString());
+            matching.sort(Boolean.FALSE.equals(request.scanIndexForward()) ? bySortKey.reversed() : bySortKey);
+        }
+        int start = 0;
+        if (request.hasExclusiveStartKey() && !request.exclusiveStartKey().isEmpty()) {
+            List<String> startKey = itemKey(request.tableName(), request.exclusiveStartKey());
+            while (start < matching.size() && !itemKey(request.tableName(), matching.get(start)).equals(startKey)) {
+                start++;
+            }
+            start++;
+        }
+        int pageSize = request.limit() != null ? Math.min(request.limit(), QUERY_PAGE_SIZE) : QUERY_PAGE_SIZE;
+        int end = Math.min(matching.size(), start + pageSize);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (Map<String, AttributeValue> item : matching.subList(Math.min(start, end), end)) {
+            if (filter == null || filter.test(item)) {
+                items.add(project(item, request.projectionExpression(), request.expressionAttributeNames()));
+            }
+        }
+        QueryResponse.Builder response = QueryResponse.builder()
+                .count(items.size())
+                .consumedCapacity(capacity(request.tableName(), request.returnConsumedCapacity()));
+        if (request.select() != Select.COUNT) {
+            response.items(items);
+        }
+        if (end < matching.size()) {
+            Map<String, AttributeValue> last = matching.get(end - 1);
+            Map<String, AttributeValue> lastKey = new HashMap<>();
+            for (String attribute : tableSchema) {
+                lastKey.put(attribute, last.get(attribute));
+            }
+            for (String attribute : schema) {
+                lastKey.put(attribute, last.get(attribute));
+            }
+            response.lastEvaluatedKey(lastKey);
+        }
+        return response.build();
+    }
+
+    private static boolean hasAttributes(Map<String, AttributeValue> item, String[] attributes) {
+        for (String attribute : attributes) {
+            if (!item.containsKey(attribute)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        call();
+        String tableName = request.tableName();
+        int totalSegments = request.totalSegments() != null ? request.totalSegments() : 1;
+        int segment = request.segment() != null ? request.segment() : 0;
+        if (segment < 0 || segment >= totalSegments) {
+            throw invalid("Segment must be less than TotalSegments");
+        }
+        List<List<String>> keys = new ArrayList<>();
+        for (List<String> key : table(tableName).keySet()) {
+            if (Math.floorMod(key.hashCode(), totalSegments) == segment) {
+                keys.add(key);
+            }
+        }
+        keys.sort(Comparator.comparing(Object::toString));
+        int start = 0;
+        if (request.hasExclusiveStartKey() && !request.exclusiveStartKey().isEmpty()) {
+            String startKey = itemKey(tableName, request.exclusiveStartKey()).toString();
+            while (start < keys.size() && keys.get(start).toString().compareTo(startKey) <= 0) {
+                start++;
+            }
+        }
+        int pageSize = request.limit() != null ? Math.min(request.limit(), QUERY_PAGE_SIZE) : QUERY_PAGE_SIZE;
+        int end = Math.min(keys.size(), start + pageSize);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> last = null;
+        for (List<String> key : keys.subList(Math.min(start, end), end)) {
+            Map<String, AttributeValue> item = table(tableName).get(key);
+            if (item != null) {
+                items.add(project(item, request.projectionExpression(), request.expressionAttributeNames()));
+                last = item;
+            }
+        }
+        ScanResponse.Builder response = ScanResponse.builder()
+                .items(items)
+                .count(items.size())
+                .scannedCount(items.size())
+                .consumedCapacity(capacity(tableName, request.returnConsumedCapacity()));
+        if (end < keys.size() && last != null) {
+            Map<String, AttributeValue> lastKey = new HashMap<>();
+            for (String attribute : keySchemas.get(tableName)) {
+                lastKey.put(attribute, last.get(attribute));
+            }
+            response.lastEvaluatedKey(lastKey);
+        }
+        return response.build();
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        call();
+        if (request.requestItems().values().stream().mapToInt(keys -> keys.keys().size()).sum()
+                > CauseCompanyStatsReader.MAX_BATCH_GET) {
+            throw DynamoDbException.builder().message("Too many items requested for the BatchGetItem call").build();
+        }
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (Map<String, AttributeValue> key : entry.getValue().keys()) {
+                Map<String, AttributeValue> item = table(entry.getKey()).get(itemKey(entry.getKey(), key));
+                if (item != null) {
+                    items.add(project(item, entry.getValue().projectionExpression(),
+                            entry.getValue().expressionAttributeNames()));
+                }
+            }
+            responses.put(entry.getKey(), items);
+        }
+        return BatchGetItemResponse.builder().responses(responses).build();
+    }
+
+    @Override
+    public synchronized TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+        call();
+        List<TransactWriteItem> items = request.transactItems();
+        List<List<String>> keys = new ArrayList<>(items.size());
+        List<Map<String, AttributeValue>> written = new ArrayList<>(items.size());
+        List<CancellationReason> reasons = new ArrayList<>(items.size());
+        boolean cancelled = false;
+        for (TransactWriteItem item : items) {
+            if (item.update() == null) {
+                throw invalid("only Update transaction items are supported");
+            }
+            String tableName = item.update().tableName();
+            List<String> key = itemKey(tableName, item.update().key());
+            if (keys.contains(key)) {
+                throw invalid("Transaction request cannot include multiple operations on one item");
+            }
+            keys.add(key);
+            Expressions expressions = new Expressions(item.update().expressionAttributeNames(),
+                    item.update().expressionAttributeValues());
+            Condition condition = expressions.parseCondition(item.update().conditionExpression());
+            Map<String, AttributeValue> current = table(tableName).get(key);
+            Map<String, AttributeValue> before = current != null ? current : Map.of();
+            if (condition != null && !condition.test(before)) {
+                cancelled = true;
+                reasons.add(CancellationReason.builder().code("ConditionalCheckFailed").build());
+                written.add(null);
+                continue;
+            }
+            Map<String, AttributeValue> after = new HashMap<>(before);
+            after.putAll(item.update().key());
+            for (Update update : expressions.parseUpdate(item.update().updateExpression())) {
+                AttributeValue value = update.apply(before);
+                if (value == null) {
+                    after.remove(update.attribute);
+                } else {
+                    after.put(update.attribute, value);
+                }
+            }
+            reasons.add(CancellationReason.builder().code("None").build());
+            written.add(Map.copyOf(after));
+        }
+        if (cancelled) {
+            throw TransactionCanceledException.builder()
+                    .message("Transaction cancelled, please refer cancellation reasons for specific reasons")
+                    .cancellationReasons(reasons)
+                    .build();
+        }
+        Map<String, ConsumedCapacity> consumed = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            String tableName = items.get(i).update().tableName();
+            table(tableName).put(keys.get(i), written.get(i));
+            ConsumedCapacity capacity = capacity(tableName, request.returnConsumedCapacity());
+            if (capacity != null) {
+                consumed.merge(tableName, capacity, (a, b) -> ConsumedCapacity.builder()
+                        .tableName(tableName)
+                        .capacityUnits(a.capacityUnits() + b.capacityUnits())
+                        .build());
+            }
+        }
+        return TransactWriteItemsResponse.builder().consumedCapacity(new ArrayList<>(consumed.values())).build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    void call() {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    ConcurrentHashMap<List<String>, Map<String, AttributeValue>> table(String tableName) {
+        ConcurrentHashMap<List<String>, Map<String, AttributeValue>> table = tables.get(tableName);
+        if (table == null) {
+            throw DynamoDbException.builder().message("Requested resource not found: Table: " + tableName).build();
+        }
+        return table;
+    }
+
+    List<String> itemKey(String tableName, Map<String, AttributeValue> item) {
+        String[] schema = keySchemas.get(tableName);
+        if (schema == null) {
+            throw DynamoDbException.builder().message("Requested resource not found: Table: " + tableName).build();
+        }
+        List<String> key = new ArrayList<>(schema.length);
+        for (String attribute : schema) {
+            AttributeValue value = item.get(attribute);
+            if (value == null || (value.s() == null && value.n() == null)) {
+                throw DynamoDbException.builder()
+                        .message("The provided key element does not match the schema: " + attribute)
+                        .build();
+            }
+            key.add(value.s() != null ? value.s() : new BigDecimal(value.n()).stripTrailingZeros().toPlainString());
+        }
+        return key;
+    }
+
+    static ConsumedCapacity capacity(String tableName, ReturnConsumedCapacity returnConsumedCapacity) {
+        return returnConsumedCapacity == null || returnConsumedCapacity == ReturnConsumedCapacity.NONE
+                ? null
+                : ConsumedCapacity.builder().tableName(tableName).capacityUnits(1.0).build();
+    }
+
+    static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projection,
+                                               Map<String, String> names) {
+        if (projection == null || projection.isBlank()) {
+            return item;
+        }
+        Map<String, AttributeValue> projected = new LinkedHashMap<>();
+        for (String name : projection.split(",")) {
+            String attribute = name.trim();
+            attribute = attribute.startsWith("#") ? names.get(attribute) : attribute;
+            if (item.containsKey(attribute)) {
+                projected.put(attribute, item.get(attribute));
+            }
+        }
+        return projected;
+    }
+
+    private static ConditionalCheckFailedException conditionFailed(ReturnValuesOnConditionCheckFailure returnValues,
+                                                                   Map<String, AttributeValue> current) {
+        ConditionalCheckFailedException.Builder failure = ConditionalCheckFailedException.builder()
+                .message("The conditional request failed");
+        if (returnValues == ReturnValuesOnConditionCheckFailure.ALL_OLD && current != null) {
+            failure.item(current);
+        }
+        return failure.build();
+    }
+
+    private static Map<String, AttributeValue> returnValues(ReturnValue returnValue, Map<String, AttributeValue> before,
+                                                            Map<String, AttributeValue> after,
+                                                            Map<String, AttributeValue> updated) {
+        if (returnValue == null) {
+            return null;
+        }
+        switch (returnValue) {
+            case ALL_NEW:
+                return Map.copyOf(after);
+            case UPDATED_NEW:
+                return Map.copyOf(updated);
+            case ALL_OLD:
+                return before;
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue>[] newResult() {
+        return new Map[1];
+    }
+
+    interface Condition {
+        boolean test(Map<String, AttributeValue> item);
+    }
+
+    interface Operand {
+        AttributeValue evaluate(Map<String, AttributeValue> item);
+    }
+
+    static final class Update {
+        final String attribute;
+        final Operand value;
+
+        Update(String attribute, Operand value) {
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        // null removes the attribute
+        AttributeValue apply(Map<String, AttributeValue> item) {
+            return value.evaluate(item);
+        }
+    }
+
+    /**
+     * Parses update, condition and key condition expressions against one request's placeholders.
+     */
+    static final class Expressions {
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        private List<String> tokens;
+        private int position;
+
+        Expressions(Map<String, String> names, Map<String, AttributeValue> values) {
+            this.names = names != null ? names : Map.of();
+            this.values = values != null ? values : Map.of();
+        }
+
+        List<Update> parseUpdate(String expression) {
+            start(expression);
+            List<Update> updates = new ArrayList<>();
+            while (position < tokens.size()) {
+                String clause = next().toUpperCase();
+                do {
+                    String attribute = attribute(next());
+                    switch (clause) {
+                        case "SET":
+                            expect("=");
+                            updates.add(new Update(attribute, arithmetic()));
+                            break;
+                        case "ADD":
+                            Operand added = operand();
+                            updates.add(new Update(attribute, item -> {
+                                AttributeValue current = item.get(attribute);
+                                AttributeValue delta = added.evaluate(item);
+                                return current == null ? delta : number(decimal(current).add(decimal(delta)));
+                            }));
+                            break;
+                        case "REMOVE":
+                            updates.add(new Update(attribute, item -> null));
+                            break;
+                        default:
+                            throw invalid("unsupported update clause " + clause);
+                    }
+                } while (accept(","));
+            }
+            return updates;
+        }
+
+        Condition parseCondition(String expression) {
+            if (expression == null || expression.isBlank()) {
+                return null;
+            }
+            start(expression);
+            Condition condition = or();
+            if (position < tokens.size()) {
+                throw invalid("unexpected token " + tokens.get(position));
+            }
+            return condition;
+        }
+
+        private Condition or() {
+            Condition left = and();
+            while (acceptKeyword("OR")) {
+                Condition l = left;
+                Condition r = and();
+                left = item -> l.test(item) || r.test(item);
+            }
+            return left;
+        }
+
+        private Condition and() {
+            Condition left = not();
+            while (acceptKeyword("AND")) {
+                Condition l = left;
+                Condition r = not();
+                left = item -> l.test(item) && r.test(item);
+            }
+            return left;
+        }
+
+        private Condition not() {
+            if (acceptKeyword("NOT")) {
+                Condition negated = not();
+                return item -> !negated.test(item);
+            }
+            if (accept("(")) {
+                Condition inner = or();
+                expect(")");
+                return inner;
+            }
+            String token = peek();
+            switch (token.toLowerCase()) {
+                case "attribute_exists": {
+                    next();
+                    expect("(");
+                    String attribute = attribute(next());
+                    expect(")");
+                    return item -> item.containsKey(attribute);
+                }
+                case "attribute_not_exists": {
+                    next();
+                    expect("(");
+                    String attribute = attribute(next());
+                    expect(")");
+                    return item -> !item.containsKey(attribute);
+                }
+                case "begins_with": {
+                    next();
+                    expect("(");
+                    Operand subject = operand();
+                    expect(",");
+                    Operand prefix = operand();
+                    expect(")");
+                    return item -> {
+                        AttributeValue value = subject.evaluate(item);
+                        return value != null && value.s() != null && value.s().startsWith(prefix.evaluate(item).s());
+                    };
+                }
+                default:
+                    break;
+            }
+            Operand left = operand();
+            if (acceptKeyword("BETWEEN")) {
+                Operand low = operand();
+                if (!acceptKeyword("AND")) {
+                    throw invalid("BETWEEN without AND");
+                }
+                Operand high = operand();
+                return item -> {
+                    AttributeValue value = left.evaluate(item);
+                    return value != null && compare(value, low.evaluate(item)) >= 0
+                            && compare(value, high.evaluate(item)) <= 0;
+                };
+            }
+            String comparator = next();
+            Operand right = operand();
+            return item -> {
+                AttributeValue l = left.evaluate(item);
+                AttributeValue r = right.evaluate(item);
+                if (l == null || r == null) {
+                    return "<>".equals(comparator) && (l != null || r != null);
+                }
+                switch (comparator) {
+                    case "=":
+                        return compare(l, r) == 0;
+                    case "<>":
+                        return compare(l, r) != 0;
+                    case "<":
+                        return compare(l, r) < 0;
+                    case "<=":
+                        return compare(l, r) <= 0;
+                    case ">":
+                        return compare(l, r) > 0;
+                    case ">=":
+                        return compare(l, r) >= 0;
+                    default:
+                        throw invalid("unsupported comparator " + comparator);
+                }
+            };
+        }
+
+        private Operand arithmetic() {
+            Operand left = operand();
+            while ("+".equals(peekOrNull()) || "-".equals(peekOrNull())) {
+                boolean plus = "+".equals(next());
+                Operand l = left;
+                Operand r = operand();
+                left = item -> {
+                    AttributeValue a = l.evaluate(item);
+                    AttributeValue b = r.evaluate(item);
+                    if (a == null || b == null) {
+                        throw invalid("An operand in the update expression has an incorrect data type");
+                    }
+                    return number(plus ? decimal(a).add(decimal(b)) : decimal(a).subtract(decimal(b)));
+                };
+            }
+            return left;
+        }
+
+        private Operand operand() {
+            String token = next();
+            if ("if_not_exists".equalsIgnoreCase(token)) {
+                expect("(");
+                String attribute = attribute(next());
+                expect(",");
+                Operand fallback = operand();
+                expect(")");
+                return item -> item.containsKey(attribute) ? item.get(attribute) : fallback.evaluate(item);
+            }
+            if (token.startsWith(":")) {
+                AttributeValue value = values.get(token);
+                if (value == null) {
+                    throw invalid("value placeholder " + token + " is not defined");
+                }
+                return item -> value;
+            }
+            String attribute = attribute(token);
+            return item -> item.get(attribute);
+        }
+
+        private String attribute(String token) {
+            if (token.startsWith("#")) {
+                String name = names.get(token);
+                if (name == null) {
+                    throw invalid("name placeholder " + token + " is not defined");
+                }
+                return name;
+            }
+            return token;
+        }
+
+        private void start(String expression) {
+            tokens = tokenize(expression);
+            position = 0;
+        }
+
+        private String next() {
+            if (position >= tokens.size()) {
+                throw invalid("unexpected end of expression");
+            }
+            return tokens.get(position++);
+        }
+
+        private String peek() {
+            if (position >= tokens.size()) {
+                throw invalid("unexpected end of expression");
+            }
+            return tokens.get(position);
+        }
+
+        private String peekOrNull() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private boolean accept(String token) {
+            if (token.equals(peekOrNull())) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            String token = peekOrNull();
+            if (token != null && keyword.equalsIgnoreCase(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw invalid("expected " + token + " but found " + peekOrNull());
+            }
+        }
+
+        private static List<String> tokenize(String expression) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < expression.length()) {
+                char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isLetterOrDigit(c) || c == '_' || c == '#' || c == ':') {
+                    int start = i;
+                    while (i < expression.length() && (Character.isLetterOrDigit(expression.charAt(i))
+                            || expression.charAt(i) == '_' || expression.charAt(i) == '#'
+                            || expression.charAt(i) == ':')) {
+                        i++;
+                    }
+                    tokens.add(expression.substring(start, i));
+                } else if ((c == '<' || c == '>') && i + 1 < expression.length()
+                        && (expression.charAt(i + 1) == '=' || (c == '<' && expression.charAt(i + 1) == '>'))) {
+                    tokens.add(expression.substring(i, i + 2));
+                    i += 2;
+                } else {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                }
+            }
+            return tokens;
+        }
+    }
+
+    static int compare(AttributeValue a, AttributeValue b) {
+        if (a.n() != null && b.n() != null) {
+            return decimal(a).compareTo(decimal(b));
+        }
+        if (a.s() != null && b.s() != null) {
+            return a.s().compareTo(b.s());
+        }
+        return a.equals(b) ? 0 : 1;
+    }
+
+    static BigDecimal decimal(AttributeValue value) {
+        if (value.n() == null) {
+            throw invalid("An operand in the update expression has an incorrect data type");
+        }
+        return new BigDecimal(value.n());
+    }
+
+    static AttributeValue number(BigDecimal value) {
+        return AttributeValue.fromN(value.stripTrailingZeros().toPlainString());
+    }
+
+    static DynamoDbException invalid(String message) {
+        return (DynamoDbException) DynamoDbException.builder()
+                .message("Invalid expression: " + message)
+                .statusCode(400)
+                .build();
+    }
+}
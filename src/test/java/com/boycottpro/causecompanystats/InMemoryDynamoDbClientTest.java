@@ -0,0 +1,152 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDynamoDbClientTest {
+
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+    private final CauseCompanyStatsUpdater updater = new CauseCompanyStatsUpdater(dynamoDb);
+
+    @Test
+    public void testUpdaterExpressionsCreateThenAdjustItem() {
+        updater.apply("c1", "co1", 1, "Cause", "Company");
+        updater.apply("c1", "co1", 1, "Other Cause", "Other Company");
+        updater.apply("c1", "co1", -1, null, null);
+        updater.apply("c1", "co1", 5, null, null);
+
+        Map<String, AttributeValue> item = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME,
+                CauseCompanyStatsReader.key("c1", "co1"));
+        assertEquals("6", item.get("boycott_count").n());
+        assertEquals("Cause", item.get("cause_desc").s());
+        assertEquals("Company", item.get("company_name").s());
+        assertEquals(6, new CauseCompanyStatsReader(dynamoDb).readCount("c1", "co1"));
+    }
+
+    @Test
+    public void testDecrementOfMissingItemStartsFromZero() {
+        updater.apply("c2", "co2", -1, null, null);
+
+        Map<String, AttributeValue> item = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME,
+                CauseCompanyStatsReader.key("c2", "co2"));
+        assertEquals("-1", item.get("boycott_count").n());
+        assertFalse(item.containsKey("company_name"));
+    }
+
+    @Test
+    public void testConcurrentUpdatesToOneItemAreAtomic() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                int delta = i % 4 == 0 ? -1 : 1;
+                writes.add(pool.submit(() -> updater.apply("hot", "co1", delta, "Cause", "Company")));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(2000, new CauseCompanyStatsReader(dynamoDb).readCount("hot", "co1"));
+    }
+
+    @Test
+    public void testConditionExpressionsAndReturnValues() {
+        dynamoDb.createTable("versions", "id", null);
+        PutItemRequest create = PutItemRequest.builder()
+                .tableName("versions")
+                .item(Map.of("id", AttributeValue.fromS("a"), "version", AttributeValue.fromN("1")))
+                .conditionExpression("attribute_not_exists(id)")
+                .build();
+        dynamoDb.putItem(create);
+        assertThrows(ConditionalCheckFailedException.class, () -> dynamoDb.putItem(create));
+
+        UpdateItemRequest bump = UpdateItemRequest.builder()
+                .tableName("versions")
+                .key(Map.of("id", AttributeValue.fromS("a")))
+                .updateExpression("SET #v = #v + :one, label = :label REMOVE stale ADD hits :one")
+                .conditionExpression("#v = :expected AND (NOT attribute_exists(stale) OR begins_with(label, :p))")
+                .expressionAttributeNames(Map.of("#v", "version"))
+                .expressionAttributeValues(Map.of(":one", AttributeValue.fromN("1"),
+                        ":expected", AttributeValue.fromN("1"), ":label", AttributeValue.fromS("x"),
+                        ":p", AttributeValue.fromS("x")))
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+        Map<String, AttributeValue> updated = dynamoDb.updateItem(bump).attributes();
+        assertEquals("2", updated.get("version").n());
+        assertEquals("1", updated.get("hits").n());
+        assertThrows(ConditionalCheckFailedException.class, () -> dynamoDb.updateItem(bump));
+
+        assertEquals(Map.of("version", AttributeValue.fromN("2")), dynamoDb.getItem(GetItemRequest.builder()
+                .tableName("versions")
+                .key(Map.of("id", AttributeValue.fromS("a")))
+                .projectionExpression("version")
+                .build()).item());
+    }
+
+    @Test
+    public void testArithmeticOnMissingAttributeIsRejected() {
+        assertThrows(DynamoDbException.class, () -> dynamoDb.updateItem(UpdateItemRequest.builder()
+                .tableName(CauseCompanyStatsUpdater.TABLE_NAME)
+                .key(CauseCompanyStatsReader.key("c3", "co3"))
+                .updateExpression("SET boycott_count = boycott_count + :delta")
+                .expressionAttributeValues(Map.of(":delta", AttributeValue.fromN("1")))
+                .build()));
+        assertNull(dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME, CauseCompanyStatsReader.key("c3", "co3")));
+    }
+
+    @Test
+    public void testIndexQueryCountsAcrossPagesWithoutItems() {
+        dynamoDb.createTable("boycotts", "user_id", "boycott_key")
+                .createIndex("boycotts", "by_pair", "cause_id", "company_id");
+        int users = InMemoryDynamoDbClient.QUERY_PAGE_SIZE + 20;
+        for (int i = 0; i < users; i++) {
+            dynamoDb.putItem(PutItemRequest.builder()
+                    .tableName("boycotts")
+                    .item(Map.of("user_id", AttributeValue.fromS("u" + i), "boycott_key", AttributeValue.fromS("k"),
+                            "cause_id", AttributeValue.fromS("c1"), "company_id", AttributeValue.fromS("co1")))
+                    .build());
+        }
+        dynamoDb.putItem(PutItemRequest.builder()
+                .tableName("boycotts")
+                .item(Map.of("user_id", AttributeValue.fromS("u-other"), "boycott_key", AttributeValue.fromS("k"),
+                        "cause_id", AttributeValue.fromS("c1")))
+                .build());
+        QueryRequest request = QueryRequest.builder()
+                .tableName("boycotts")
+                .indexName("by_pair")
+                .keyConditionExpression("cause_id = :c AND company_id = :co")
+                .expressionAttributeValues(Map.of(":c", AttributeValue.fromS("c1"), ":co", AttributeValue.fromS("co1")))
+                .select(Select.COUNT)
+                .build();
+
+        QueryResponse first = dynamoDb.query(request);
+        QueryResponse second = dynamoDb.query(request.toBuilder().exclusiveStartKey(first.lastEvaluatedKey()).build());
+
+        assertEquals(InMemoryDynamoDbClient.QUERY_PAGE_SIZE, first.count());
+        assertFalse(first.hasItems());
+        assertEquals(20, second.count());
+        assertFalse(second.hasLastEvaluatedKey());
+        assertThrows(DynamoDbException.class, () -> dynamoDb.query(request.toBuilder().indexName("missing").build()));
+    }
+}
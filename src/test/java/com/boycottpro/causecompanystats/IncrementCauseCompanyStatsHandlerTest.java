@@ -115,11 +115,14 @@ public class IncrementCauseCompanyStatsHandlerTest {
             IncrementCauseCompanyStatsHandler handler = new IncrementCauseCompanyStatsHandler();
             assertNotNull(handler);
 
-            // Verify DynamoDbClient was created (using reflection to access private field)
+            // Verify DynamoDbClient was created (using reflection to reach the core's private field)
             try {
-                Field dynamoDbField = IncrementCauseCompanyStatsHandler.class.getDeclaredField("dynamoDb");
+                Field coreField = IncrementCauseCompanyStatsHandler.class.getDeclaredField("core");
+                coreField.setAccessible(true);
+                Object core = coreField.get(handler);
+                Field dynamoDbField = IncrementCauseCompanyStatsCore.class.getDeclaredField("dynamoDb");
                 dynamoDbField.setAccessible(true);
-                DynamoDbClient dynamoDb = (DynamoDbClient) dynamoDbField.get(handler);
+                DynamoDbClient dynamoDb = (DynamoDbClient) dynamoDbField.get(core);
                 assertNotNull(dynamoDb);
             } catch (NoSuchFieldException | IllegalAccessException e) {
                 fail("Failed to access DynamoDbClient field: " + e.getMessage());
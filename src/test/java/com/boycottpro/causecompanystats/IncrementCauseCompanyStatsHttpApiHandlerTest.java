@@ -0,0 +1,122 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementCauseCompanyStatsHttpApiHandlerTest {
+
+    private static final String SUB = "11111111-2222-3333-4444-555555555555";
+    private static final String INCREMENT_BODY =
+            "{\"company_name\":\"Some Company\",\"cause_desc\":\"Some Cause\",\"increment\":true}";
+
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+    private final IncrementCauseCompanyStatsHttpApiHandler handler = new IncrementCauseCompanyStatsHttpApiHandler(
+            dynamoDb, new HandlerConfig(), quietMetrics(), new CauseCompanyStatsCache(100, 60_000));
+
+    @Test
+    public void testIncrementAndDecrementReadSubFromJwtClaims() {
+        APIGatewayV2HTTPResponse first = handler.handleRequest(event(SUB, INCREMENT_BODY, null), null);
+        APIGatewayV2HTTPResponse second = handler.handleRequest(event(SUB, INCREMENT_BODY, null), null);
+        APIGatewayV2HTTPResponse third = handler.handleRequest(event(SUB, "{\"increment\":false}", null), null);
+
+        assertEquals(200, first.getStatusCode());
+        assertEquals("{\"recordUpdated\":true}", first.getBody());
+        assertEquals("application/json", first.getHeaders().get("Content-Type"));
+        assertEquals(200, second.getStatusCode());
+        assertEquals(200, third.getStatusCode());
+        assertEquals(1L, count("c123", "co456"));
+    }
+
+    @Test
+    public void testMissingJwtIsUnauthorized() {
+        APIGatewayV2HTTPEvent event = event(SUB, INCREMENT_BODY, null);
+        event.setRequestContext(new APIGatewayV2HTTPEvent.RequestContext());
+
+        APIGatewayV2HTTPResponse response = handler.handleRequest(event, null);
+
+        assertEquals(401, response.getStatusCode());
+        assertTrue(response.getBody().contains("Unauthorized"));
+        assertNull(dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME, CauseCompanyStatsReader.key("c123", "co456")));
+    }
+
+    @Test
+    public void testBase64BodyIsDecoded() {
+        APIGatewayV2HTTPEvent event = event(SUB,
+                Base64.getEncoder().encodeToString(INCREMENT_BODY.getBytes(StandardCharsets.UTF_8)), null);
+        event.setIsBase64Encoded(true);
+
+        assertEquals(200, handler.handleRequest(event, null).getStatusCode());
+        assertEquals(1L, count("c123", "co456"));
+    }
+
+    @Test
+    public void testLowercasedIdempotencyHeaderDeduplicates() {
+        Map<String, String> headers = Map.of("idempotency-key", "k1");
+
+        assertEquals(200, handler.handleRequest(event(SUB, INCREMENT_BODY, headers), null).getStatusCode());
+        assertEquals(200, handler.handleRequest(event(SUB, INCREMENT_BODY, headers), null).getStatusCode());
+
+        assertEquals(1L, count("c123", "co456"));
+    }
+
+    @Test
+    public void testMatchesRestApiHandlerResponses() {
+        IncrementCauseCompanyStatsHandler restHandler = new IncrementCauseCompanyStatsHandler(dynamoDb,
+                new HandlerConfig(), quietMetrics(), new CauseCompanyStatsCache(100, 60_000));
+        String[] bodies = {INCREMENT_BODY, "{\"increment\":true}", "{not json"};
+
+        for (String body : bodies) {
+            APIGatewayV2HTTPResponse v2 = handler.handleRequest(event(SUB, body, null), null);
+            APIGatewayProxyRequestEvent v1Event = new APIGatewayProxyRequestEvent();
+            Map<String, Object> authorizer = new HashMap<>();
+            authorizer.put("claims", Map.of("sub", SUB));
+            APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+            rc.setAuthorizer(authorizer);
+            v1Event.setRequestContext(rc);
+            v1Event.setPathParameters(Map.of("cause_id", "c123", "company_id", "co456"));
+            v1Event.setBody(body);
+            APIGatewayProxyResponseEvent v1 = restHandler.handleRequest(v1Event, null);
+
+            assertEquals(v1.getStatusCode().intValue(), v2.getStatusCode(), body);
+            assertEquals(v1.getBody(), v2.getBody(), body);
+        }
+    }
+
+    private long count(String causeId, String companyId) {
+        Map<String, AttributeValue> item = dynamoDb.item(CauseCompanyStatsUpdater.TABLE_NAME,
+                CauseCompanyStatsReader.key(causeId, companyId));
+        return CauseCompanyStatsReader.count(item);
+    }
+
+    private static MetricsLogger quietMetrics() {
+        return new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false);
+    }
+
+    static APIGatewayV2HTTPEvent event(String sub, String body, Map<String, String> headers) {
+        APIGatewayV2HTTPEvent.RequestContext.Authorizer.JWT jwt = new APIGatewayV2HTTPEvent.RequestContext.Authorizer.JWT();
+        jwt.setClaims(Map.of("sub", sub));
+        APIGatewayV2HTTPEvent.RequestContext.Authorizer authorizer = new APIGatewayV2HTTPEvent.RequestContext.Authorizer();
+        authorizer.setJwt(jwt);
+        APIGatewayV2HTTPEvent.RequestContext requestContext = new APIGatewayV2HTTPEvent.RequestContext();
+        requestContext.setAuthorizer(authorizer);
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRequestContext(requestContext);
+        event.setPathParameters(Map.of("cause_id", "c123", "company_id", "co456"));
+        event.setHeaders(headers);
+        event.setBody(body);
+        return event;
+    }
+}
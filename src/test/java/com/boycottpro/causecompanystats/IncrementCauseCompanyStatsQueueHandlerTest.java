@@ -0,0 +1,148 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.boycottpro.causecompanystats.model.BatchIncrementEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IncrementCauseCompanyStatsQueueHandlerTest {
+
+    @Mock
+    private DynamoDbClient dynamoDb;
+
+    @Mock
+    private Context context;
+
+    @InjectMocks
+    private IncrementCauseCompanyStatsQueueHandler handler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testRecordsForSameKeyAreCombinedIntoNetDelta() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().build());
+
+        SQSBatchResponse response = handler.handleRequest(event(
+                message("m1", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true)),
+                message("m2", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true)),
+                message("m3", new BatchIncrementEntry("c1", "co1", null, null, false)),
+                message("m4", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true))), context);
+
+        assertTrue(response.getBatchItemFailures().isEmpty());
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb, times(1)).updateItem(captor.capture());
+        assertEquals("2", captor.getValue().expressionAttributeValues().get(":delta").n());
+        assertEquals("Company", captor.getValue().expressionAttributeValues().get(":company_name").s());
+    }
+
+    @Test
+    public void testOnlyMessagesForFailedKeyAreReported() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            UpdateItemRequest request = invocation.getArgument(0);
+            if ("c2".equals(request.key().get("cause_id").s())) {
+                throw DynamoDbException.builder().message("Throughput exceeded").build();
+            }
+            return UpdateItemResponse.builder().build();
+        });
+
+        SQSBatchResponse response = handler.handleRequest(event(
+                message("m1", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true)),
+                message("m2", new BatchIncrementEntry("c2", "co1", "Company", "Cause", true)),
+                message("m3", new BatchIncrementEntry("c2", "co1", null, null, false)),
+                message("m4", new BatchIncrementEntry("c3", "co1", "Company", "Cause", true))), context);
+
+        assertEquals(List.of("m2", "m3"), failedIds(response));
+        verify(dynamoDb, times(3)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    public void testThrottledWritesAreRetriedOnlyWhileTheInvocationHasTime() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Throughput exceeded").build())
+                .thenReturn(UpdateItemResponse.builder().build());
+        when(context.getRemainingTimeInMillis()).thenReturn(100);
+
+        SQSBatchResponse outOfTime = handler.handleRequest(event(
+                message("m1", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true))), context);
+
+        assertEquals(List.of("m1"), failedIds(outOfTime));
+        verify(dynamoDb, times(1)).updateItem(any(UpdateItemRequest.class));
+
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Throughput exceeded").build())
+                .thenReturn(UpdateItemResponse.builder().build());
+        when(context.getRemainingTimeInMillis()).thenReturn(10_000);
+
+        SQSBatchResponse withTime = handler.handleRequest(event(
+                message("m2", new BatchIncrementEntry("c1", "co1", "Company", "Cause", true))), context);
+
+        assertTrue(withTime.getBatchItemFailures().isEmpty());
+        verify(dynamoDb, times(3)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    public void testMalformedMessagesAreReportedAsFailures() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().build());
+        SQSEvent.SQSMessage malformed = new SQSEvent.SQSMessage();
+        malformed.setMessageId("bad");
+        malformed.setBody("{not json");
+
+        SQSBatchResponse response = handler.handleRequest(event(
+                malformed,
+                message("missing-desc", new BatchIncrementEntry("c1", "co1", "Company", null, true)),
+                message("ok", new BatchIncrementEntry("c1", "co1", null, null, false))), context);
+
+        assertEquals(List.of("bad", "missing-desc"), failedIds(response));
+        verify(dynamoDb, times(1)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    public void testEmptyEventProducesNoFailures() {
+        SQSBatchResponse response = handler.handleRequest(new SQSEvent(), context);
+
+        assertTrue(response.getBatchItemFailures().isEmpty());
+        verifyNoInteractions(dynamoDb);
+    }
+
+    private SQSEvent event(SQSEvent.SQSMessage... messages) {
+        SQSEvent event = new SQSEvent();
+        event.setRecords(new ArrayList<>(List.of(messages)));
+        return event;
+    }
+
+    private SQSEvent.SQSMessage message(String id, BatchIncrementEntry entry) throws Exception {
+        SQSEvent.SQSMessage message = new SQSEvent.SQSMessage();
+        message.setMessageId(id);
+        message.setBody(objectMapper.writeValueAsString(entry));
+        return message;
+    }
+
+    private List<String> failedIds(SQSBatchResponse response) {
+        return response.getBatchItemFailures().stream()
+                .map(SQSBatchResponse.BatchItemFailure::getItemIdentifier)
+                .collect(Collectors.toList());
+    }
+}
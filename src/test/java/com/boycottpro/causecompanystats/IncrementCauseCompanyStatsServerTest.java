@@ -0,0 +1,222 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementCauseCompanyStatsServerTest {
+
+    private static final String SUB = "11111111-2222-3333-4444-555555555555";
+    private static final String INCREMENT_BODY =
+            "{\"company_name\":\"Some Company\",\"cause_desc\":\"Some Cause\",\"increment\":true}";
+
+    private static final AlbTokenSigner SIGNER = new AlbTokenSigner();
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private IncrementCauseCompanyStatsServer server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testThroughputAgainstStubbedClient() throws Exception {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(5);
+        start(dynamoDb, 1024);
+        int requests = Integer.getInteger("server.requests", 2_000);
+
+        int clients = 64;
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger ok = new AtomicInteger();
+        long startNanos = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                senders.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        HttpResponse<String> response =
+                                send(post("/cause-company-stats/c" + (i % 50) + "/co1", SUB, INCREMENT_BODY));
+                        if (response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        System.out.printf("server: %d requests from %d clients against a 5 ms client in %.2f s, %.0f req/s%n",
+                requests, clients, seconds, requests / seconds);
+        assertEquals(requests, ok.get());
+        assertEquals(requests, dynamoDb.updates());
+    }
+
+    @Test
+    public void testRequestsOverLimitAreRejectedNotQueued() throws Exception {
+        start(new StubDynamoDbClient(300), 1);
+
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(
+                post("/cause-company-stats/c1/co1", SUB, INCREMENT_BODY), HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(100);
+        HttpResponse<String> second = client.send(
+                post("/cause-company-stats/c1/co1", SUB, INCREMENT_BODY), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(503, second.statusCode());
+        assertEquals("1", second.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(200, first.get().statusCode());
+    }
+
+    @Test
+    public void testIdentityHeaderAndRouting() throws Exception {
+        start(new StubDynamoDbClient(0), 8);
+
+        assertEquals(401, send(post("/cause-company-stats/c1/co1", null, INCREMENT_BODY)).statusCode());
+        assertEquals(404, send(post("/cause-company-stats/c1", SUB, INCREMENT_BODY)).statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(uri("/cause-company-stats/c1/co1")).GET().build()).statusCode());
+        HttpResponse<String> response = send(post("/cause-company-stats/c1/co1", SUB, INCREMENT_BODY));
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"recordUpdated\":true}", response.body());
+    }
+
+    @Test
+    public void testUnsignedOrForeignIdentityIsUnauthorized() throws Exception {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(0);
+        start(dynamoDb, 8);
+
+        HttpRequest identityOnly = HttpRequest.newBuilder(uri("/cause-company-stats/c1/co1"))
+                .header("x-amzn-oidc-identity", SUB)
+                .POST(HttpRequest.BodyPublishers.ofString(INCREMENT_BODY))
+                .build();
+        HttpRequest otherBalancer = HttpRequest.newBuilder(uri("/cause-company-stats/c1/co1"))
+                .header(IncrementCauseCompanyStatsServer.OIDC_DATA_HEADER, SIGNER.token(SUB,
+                        AlbTokenSigner.ALB_ARN.replace("stats", "other"), System.currentTimeMillis() / 1000L + 60))
+                .POST(HttpRequest.BodyPublishers.ofString(INCREMENT_BODY))
+                .build();
+
+        assertEquals(401, send(identityOnly).statusCode());
+        assertEquals(401, send(otherBalancer).statusCode());
+        assertEquals(0, dynamoDb.updates());
+    }
+
+    @Test
+    public void testRefusesToStartWithoutLoadBalancerArn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new IncrementCauseCompanyStatsServer(new StubDynamoDbClient(0), config(8)));
+    }
+
+    @Test
+    public void testStopLetsInFlightRequestsFinish() throws Exception {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(300);
+        start(dynamoDb, 8);
+        assertEquals(200, send(HttpRequest.newBuilder(uri("/health")).GET().build()).statusCode());
+
+        CompletableFuture<HttpResponse<String>> inFlight = client.sendAsync(
+                post("/cause-company-stats/c1/co1", SUB, INCREMENT_BODY), HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(100);
+        server.stop();
+        server = null;
+
+        assertEquals(200, inFlight.get().statusCode());
+        assertEquals(1, dynamoDb.updates());
+    }
+
+    @Test
+    public void testServesThroughDeregistrationDelayWithHealthCheckFailing() throws Exception {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(0);
+        HandlerConfig config = config(8);
+        config.setServerDeregistrationDelaySeconds(1);
+        start(dynamoDb, config);
+        IncrementCauseCompanyStatsServer stopping = server;
+        server = null;
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(stopping::stop);
+        Thread.sleep(200);
+        assertFalse(stopped.isDone());
+        assertEquals(503, send(HttpRequest.newBuilder(uri(stopping, "/health")).GET().build()).statusCode());
+        assertEquals(200, send(post(stopping, "/cause-company-stats/c1/co1", SUB, INCREMENT_BODY)).statusCode());
+
+        stopped.get(5, TimeUnit.SECONDS);
+        assertEquals(1, dynamoDb.updates());
+    }
+
+    @Test
+    public void testStopGivesUpOnRequestsThatOutlastTheDrainTime() throws Exception {
+        HandlerConfig config = config(8);
+        config.setServerDrainSeconds(1);
+        start(new StubDynamoDbClient(10_000), config);
+
+        client.sendAsync(post("/cause-company-stats/c1/co1", SUB, INCREMENT_BODY),
+                HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        server.stop();
+        server = null;
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < 3_000, "stop took " + elapsedMillis + " ms");
+    }
+
+    private void start(StubDynamoDbClient dynamoDb, int maxConcurrency) throws Exception {
+        start(dynamoDb, config(maxConcurrency));
+    }
+
+    private static HandlerConfig config(int maxConcurrency) {
+        HandlerConfig config = new HandlerConfig();
+        config.setServerPort(0);
+        config.setServerMaxConcurrency(maxConcurrency);
+        config.setServerDrainSeconds(2);
+        config.setServerDeregistrationDelaySeconds(0);
+        return config;
+    }
+
+    private void start(StubDynamoDbClient dynamoDb, HandlerConfig config) throws Exception {
+        IncrementCauseCompanyStatsCore core = new IncrementCauseCompanyStatsCore(dynamoDb, config,
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false),
+                new CauseCompanyStatsCache(100, 60_000));
+        server = new IncrementCauseCompanyStatsServer(core, config, SIGNER.verifier());
+        server.start();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest post(String path, String sub, String body) {
+        return post(server, path, sub, body);
+    }
+
+    private static HttpRequest post(IncrementCauseCompanyStatsServer server, String path, String sub, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(server, path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (sub != null) {
+            request.header(IncrementCauseCompanyStatsServer.OIDC_DATA_HEADER, SIGNER.token(sub));
+        }
+        return request.build();
+    }
+
+    private URI uri(String path) {
+        return uri(server, path);
+    }
+
+    private static URI uri(IncrementCauseCompanyStatsServer server, String path) {
+        return URI.create("http://localhost:" + server.port() + path);
+    }
+}
@@ -0,0 +1,74 @@
+package com.boycottpro.causecompanystats;
+
+import com.boycottpro.causecompanystats.model.IncrementForm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementFormCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IncrementFormCodec codec = new IncrementFormCodec(objectMapper);
+
+    @Test
+    public void testCodecMatchesDatabindForAcceptedAndRejectedInput() {
+        List<String> bodies = Arrays.asList(
+                "{\"company_name\":\"Some Company\",\"cause_desc\":\"Some Cause\",\"increment\":true}",
+                "{\"increment\":false,\"cause_desc\":\"Cause\",\"company_name\":\"Company\"}",
+                "{\"company_name\":null,\"cause_desc\":\"Cause\",\"increment\":true}",
+                "{\"increment\":true}",
+                "{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":true,\"idempotency_key\":\"k1\"}",
+                "{\"increment\":false,\"idempotency_key\":null}",
+                "{\"increment\":false,\"idempotency_key\":7}",
+                "{}",
+                "{\"company_name\":\"A\",\"company_name\":\"B\",\"increment\":true}",
+                "{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":\"true\"}",
+                "{\"company_name\":42,\"cause_desc\":\"Cause\",\"increment\":true}",
+                "{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":null}",
+                "{\"company_name\":\"Company\",\"unexpected\":1}",
+                "{\"company_name\":{\"nested\":true}}",
+                "{\"company_name\":\"Company\"} trailing",
+                "{\"company_name\":",
+                "{not json",
+                "[]",
+                "null",
+                "",
+                null);
+
+        for (String body : bodies) {
+            Object expected = outcome(() -> objectMapper.readValue(body, IncrementForm.class));
+            Object actual = outcome(() -> codec.read(body));
+            assertEquals(expected, actual, "body: " + body);
+        }
+    }
+
+    @Test
+    public void testPlainBodyIsReadWithoutDatabind() throws Exception {
+        IncrementForm form = codec.read("{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":true}");
+
+        assertEquals("Company", form.getCompany_name());
+        assertEquals("Cause", form.getCause_desc());
+        assertTrue(form.isIncrement());
+        assertNull(form.getIdempotency_key());
+    }
+
+    private interface Read {
+        IncrementForm read() throws Exception;
+    }
+
+    // Reduces a parse to something comparable: the form's fields, or the exception type and message.
+    private static Object outcome(Read read) {
+        try {
+            IncrementForm form = read.read();
+            return form == null ? "null form"
+                    : List.of(String.valueOf(form.getCompany_name()), String.valueOf(form.getCause_desc()),
+                    form.isIncrement(), String.valueOf(form.getIdempotency_key()));
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+}
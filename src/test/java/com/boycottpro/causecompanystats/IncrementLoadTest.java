@@ -0,0 +1,57 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives handleRequest against the in-memory table and checks every counter afterwards. The
+ * defaults keep the run short; pass -Dload.rate, -Dload.requests, -Dload.threads, -Dload.keys and
+ * -Dload.zipf for a longer or more skewed one.
+ */
+public class IncrementLoadTest {
+
+    @Test
+    public void testCountsAreExactUnderSkewedConcurrentLoad() throws Exception {
+        runAndVerify(new HandlerConfig());
+    }
+
+    @Test
+    public void testShardedCountsAreExactUnderSkewedConcurrentLoad() throws Exception {
+        HandlerConfig config = new HandlerConfig();
+        config.setCounterShards(4);
+        runAndVerify(config);
+    }
+
+    @Test
+    public void testZipfSkewFavoursLowKeys() {
+        LoadGenerator generator = new LoadGenerator(1, 1, 1, 100, 1.2, 0);
+
+        assertEquals(0, generator.sampleKey(0.0));
+        assertEquals(99, generator.sampleKey(1.0));
+        assertTrue(LoadGenerator.zipfCdf(100, 1.2)[0] > 0.2);
+    }
+
+    private void runAndVerify(HandlerConfig config) throws Exception {
+        config.setHotKeyWritesPerSecond(0);
+        InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient(1);
+        IncrementCauseCompanyStatsHandler handler = new IncrementCauseCompanyStatsHandler(dynamoDb, config,
+                new MetricsLogger(new PrintStream(OutputStream.nullOutputStream()), false));
+        LoadGenerator generator = LoadGenerator.fromSystemProperties(2_000, 4_000, 32, 50, 1.1);
+
+        LoadGenerator.Report report = generator.run(event -> handler.handleRequest(event, null));
+
+        System.out.println(generator.describe() + " (" + config.getCounterShards() + " shard(s)): " + report);
+        assertEquals(Map.of(200, report.getStatuses().values().stream().mapToInt(Integer::intValue).sum()),
+                report.getStatuses());
+        CauseCompanyStatsReader reader = new CauseCompanyStatsReader(dynamoDb, config.shardedCounter());
+        for (Map.Entry<String, Long> expected : report.getExpectedCounts().entrySet()) {
+            assertEquals(expected.getValue().longValue(), reader.readCount(expected.getKey(), "company-1"),
+                    expected.getKey());
+        }
+    }
+}
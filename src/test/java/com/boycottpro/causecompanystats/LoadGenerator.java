@@ -0,0 +1,186 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-loop load generator: request i is due at start + i / rate, whether or not earlier
+ * requests have finished, and its latency is measured from that due time so queueing behind a
+ * slow request is counted (no coordinated omission). Cause/company keys are drawn from a Zipf
+ * distribution, so key 0 is the hottest. The expected final count of every key is tracked from
+ * the requests that were answered 200.
+ */
+public class LoadGenerator {
+
+    private static final String SUB_PREFIX = "11111111-2222-3333-4444-";
+
+    private final int requestsPerSecond;
+    private final int totalRequests;
+    private final int threads;
+    private final int keys;
+    private final double zipfExponent;
+    private final double decrementRatio;
+    private final double[] zipfCdf;
+
+    public LoadGenerator(int requestsPerSecond, int totalRequests, int threads, int keys, double zipfExponent,
+                         double decrementRatio) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.totalRequests = totalRequests;
+        this.threads = threads;
+        this.keys = keys;
+        this.zipfExponent = zipfExponent;
+        this.decrementRatio = decrementRatio;
+        this.zipfCdf = zipfCdf(keys, zipfExponent);
+    }
+
+    /**
+     * Reads load.rate, load.requests, load.threads, load.keys, load.zipf and load.decrements from
+     * system properties, so a longer run is a matter of -D flags.
+     */
+    public static LoadGenerator fromSystemProperties(int rate, int requests, int threads, int keys, double zipf) {
+        return new LoadGenerator(
+                Integer.getInteger("load.rate", rate),
+                Integer.getInteger("load.requests", requests),
+                Integer.getInteger("load.threads", threads),
+                Integer.getInteger("load.keys", keys),
+                Double.parseDouble(System.getProperty("load.zipf", String.valueOf(zipf))),
+                Double.parseDouble(System.getProperty("load.decrements", "0.2")));
+    }
+
+    public Report run(Function<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger nextRequest = new AtomicInteger();
+        long[] latencies = new long[totalRequests];
+        Map<String, AtomicLong> expected = new ConcurrentHashMap<>();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        long intervalNanos = 1_000_000_000L / Math.max(1, requestsPerSecond);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int i;
+                    while ((i = nextRequest.getAndIncrement()) < totalRequests) {
+                        long due = start + i * intervalNanos;
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        String causeId = "cause-" + sampleKey(random.nextDouble());
+                        boolean increment = random.nextDouble() >= decrementRatio;
+                        String sub = SUB_PREFIX + String.format("%012d", random.nextInt(10_000));
+                        APIGatewayProxyResponseEvent response = handler.apply(event(sub, causeId, increment));
+                        latencies[i] = System.nanoTime() - due;
+                        statuses.computeIfAbsent(response.getStatusCode(), s -> new AtomicInteger()).incrementAndGet();
+                        if (response.getStatusCode() == 200) {
+                            expected.computeIfAbsent(causeId, k -> new AtomicLong()).addAndGet(increment ? 1 : -1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        Map<String, Long> expectedCounts = new HashMap<>();
+        expected.forEach((key, count) -> expectedCounts.put(key, count.get()));
+        Map<Integer, Integer> statusCounts = new HashMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.get()));
+        return new Report(totalRequests, elapsed, latencies, statusCounts, expectedCounts);
+    }
+
+    int sampleKey(double uniform) {
+        int index = Arrays.binarySearch(zipfCdf, uniform);
+        return Math.min(keys - 1, index >= 0 ? index : -index - 1);
+    }
+
+    static double[] zipfCdf(int keys, double exponent) {
+        double[] cdf = new double[keys];
+        double total = 0;
+        for (int k = 0; k < keys; k++) {
+            total += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = total;
+        }
+        for (int k = 0; k < keys; k++) {
+            cdf[k] /= total;
+        }
+        return cdf;
+    }
+
+    static APIGatewayProxyRequestEvent event(String sub, String causeId, boolean increment) {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", sub));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", causeId, "company_id", "company-1"));
+        event.setBody(increment
+                ? "{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":true}"
+                : "{\"increment\":false}");
+        return event;
+    }
+
+    public String describe() {
+        return String.format("%d requests at %d/s on %d threads, %d keys, zipf %.2f",
+                totalRequests, requestsPerSecond, threads, keys, zipfExponent);
+    }
+
+    public static final class Report {
+        private final int requests;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+        private final Map<Integer, Integer> statuses;
+        private final Map<String, Long> expectedCounts;
+
+        Report(int requests, long elapsedNanos, long[] latencies, Map<Integer, Integer> statuses,
+               Map<String, Long> expectedCounts) {
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.statuses = statuses;
+            this.expectedCounts = expectedCounts;
+        }
+
+        public double throughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        public double percentileMillis(double p) {
+            int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))] / 1e6;
+        }
+
+        public Map<Integer, Integer> getStatuses() { return statuses; }
+        public Map<String, Long> getExpectedCounts() { return expectedCounts; }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms, statuses %s",
+                    throughput(), percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                    percentileMillis(100), statuses);
+        }
+    }
+}
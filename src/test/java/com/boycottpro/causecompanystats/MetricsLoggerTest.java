@@ -0,0 +1,125 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class MetricsLoggerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private DynamoDbClient dynamoDb;
+    private IncrementCauseCompanyStatsHandler handler;
+
+    @BeforeEach
+    public void setUp() {
+        dynamoDb = mock(DynamoDbClient.class);
+        handler = new IncrementCauseCompanyStatsHandler(dynamoDb, new HandlerConfig(),
+                new MetricsLogger(new PrintStream(output, true, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSuccessfulIncrementEmitsEmfRecord() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder()
+                .consumedCapacity(ConsumedCapacity.builder().tableName("cause_company_stats").capacityUnits(1.0).build())
+                .build());
+
+        assertEquals(200, handler.handleRequest(event("c123", true), null).getStatusCode());
+
+        JsonNode record = single();
+        JsonNode directive = record.get("_aws").get("CloudWatchMetrics").get(0);
+        assertEquals(MetricsLogger.NAMESPACE, directive.get("Namespace").asText());
+        assertEquals("[[\"Cause\",\"Direction\"]]", directive.get("Dimensions").toString());
+        List<String> names = new ArrayList<>();
+        directive.get("Metrics").forEach(metric -> names.add(metric.get("Name").asText()));
+        assertTrue(names.containsAll(List.of("ColdStart", "ParseTime", "UpdateItemLatency",
+                "ConsumedWriteCapacity", "HandlerLatency")), names.toString());
+        assertEquals("c123", record.get("Cause").asText());
+        assertEquals("increment", record.get("Direction").asText());
+        assertEquals(1.0, record.get("ConsumedWriteCapacity").asDouble());
+        assertTrue(record.get("HandlerLatency").asDouble() >= record.get("UpdateItemLatency").asDouble());
+        assertTrue(record.has("_aws") && record.get("_aws").get("Timestamp").isNumber());
+        verify(dynamoDb).updateItem(argThat((UpdateItemRequest request) ->
+                request.returnConsumedCapacity() == ReturnConsumedCapacity.TOTAL));
+    }
+
+    @Test
+    public void testThrottlingIsCounted() throws Exception {
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("slow down").build());
+
+        assertEquals(503, handler.handleRequest(event("c123", false), null).getStatusCode());
+
+        JsonNode record = single();
+        assertEquals(1, record.get("ThrottlingErrors").asInt());
+        assertEquals("decrement", record.get("Direction").asText());
+        assertFalse(record.has("ValidationErrors"));
+    }
+
+    @Test
+    public void testValidationErrorsAreCounted() throws Exception {
+        APIGatewayProxyRequestEvent missingPath = event("c123", true);
+        missingPath.setPathParameters(null);
+        handler.handleRequest(missingPath, null);
+
+        APIGatewayProxyRequestEvent missingMetadata = event("c123", true);
+        missingMetadata.setBody("{\"increment\":true}");
+        handler.handleRequest(missingMetadata, null);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1, objectMapper.readTree(lines[0]).get("ValidationErrors").asInt());
+        assertEquals("unknown", objectMapper.readTree(lines[0]).get("Cause").asText());
+        assertEquals(1, objectMapper.readTree(lines[1]).get("ValidationErrors").asInt());
+        verifyNoInteractions(dynamoDb);
+    }
+
+    @Test
+    public void testDisabledLoggerWritesNothing() {
+        ByteArrayOutputStream quiet = new ByteArrayOutputStream();
+        MetricsLogger logger = new MetricsLogger(new PrintStream(quiet), false);
+
+        logger.publish(logger.start().dimension("Cause", "c1").put("HandlerLatency", 1.5, InvocationMetrics.MILLISECONDS));
+
+        assertEquals(0, quiet.size());
+    }
+
+    private JsonNode single() throws Exception {
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(1, lines.length);
+        return objectMapper.readTree(lines[0]);
+    }
+
+    private APIGatewayProxyRequestEvent event(String causeId, boolean increment) {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", causeId, "company_id", "co456"));
+        event.setBody("{\"company_name\":\"Company\",\"cause_desc\":\"Cause\",\"increment\":" + increment + "}");
+        return event;
+    }
+}
@@ -0,0 +1,58 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Priming exercises the request path without writing, and both API handlers read the stats table
+ * before the snapshot and after each restore so the first request finds an open connection. How
+ * much it saves on the first response is measured by PrimingStartupBenchmark in the jmh profile,
+ * one fresh JVM per sample.
+ */
+public class PrimingStartupTest {
+
+    @Test
+    public void testPrimingRunsRequestPathWithoutWriting() {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(0);
+        IncrementCauseCompanyStatsHandler handler = new IncrementCauseCompanyStatsHandler(dynamoDb);
+
+        handler.prime();
+
+        assertEquals(0, dynamoDb.updates());
+        assertEquals(200, handler.handleRequest(event(), null).getStatusCode());
+        assertEquals(1, dynamoDb.updates());
+    }
+
+    @Test
+    public void testBothHandlersOpenTheConnectionAroundTheSnapshot() {
+        InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient();
+        IncrementCauseCompanyStatsHandler restHandler = new IncrementCauseCompanyStatsHandler(dynamoDb);
+        IncrementCauseCompanyStatsHttpApiHandler httpApiHandler = new IncrementCauseCompanyStatsHttpApiHandler(dynamoDb);
+
+        restHandler.beforeCheckpoint(null);
+        httpApiHandler.beforeCheckpoint(null);
+        assertEquals(2, dynamoDb.calls());
+
+        restHandler.afterRestore(null);
+        httpApiHandler.afterRestore(null);
+        assertEquals(4, dynamoDb.calls());
+        assertTrue(dynamoDb.items(CauseCompanyStatsUpdater.TABLE_NAME).isEmpty());
+    }
+
+    private static APIGatewayProxyRequestEvent event() {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        Map<String, Object> authorizer = new HashMap<>();
+        authorizer.put("claims", Map.of("sub", "11111111-2222-3333-4444-555555555555"));
+        APIGatewayProxyRequestEvent.ProxyRequestContext rc = new APIGatewayProxyRequestEvent.ProxyRequestContext();
+        rc.setAuthorizer(authorizer);
+        event.setRequestContext(rc);
+        event.setPathParameters(Map.of("cause_id", "c123", "company_id", "co456"));
+        event.setBody("{\"company_name\":\"Some Company\",\"cause_desc\":\"Some Cause\",\"increment\":true}");
+        return event;
+    }
+}
@@ -0,0 +1,186 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class ShardedCounterTest {
+
+    private final Map<String, Long> table = new ConcurrentHashMap<>();
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+    private DynamoDbClient dynamoDb;
+
+    @BeforeEach
+    public void setUp() {
+        dynamoDb = mock(DynamoDbClient.class);
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            UpdateItemRequest request = invocation.getArgument(0);
+            AttributeValue shardCount = request.expressionAttributeValues().get(":shard_count");
+            if (shardCount != null) {
+                int count = Integer.parseInt(shardCount.n());
+                if (shardCounts.getOrDefault(tableKey(request.key()), 0) >= count) {
+                    throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+                }
+                shardCounts.put(tableKey(request.key()), count);
+                return UpdateItemResponse.builder().build();
+            }
+            long delta = Long.parseLong(request.expressionAttributeValues().get(":delta").n());
+            table.merge(tableKey(request.key()), delta, Long::sum);
+            return UpdateItemResponse.builder().build();
+        });
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            BatchGetItemRequest request = invocation.getArgument(0);
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (Map<String, AttributeValue> key : request.requestItems().get(CauseCompanyStatsUpdater.TABLE_NAME).keys()) {
+                Long count = table.get(tableKey(key));
+                Integer shardCount = shardCounts.get(tableKey(key));
+                if (count != null || shardCount != null) {
+                    Map<String, AttributeValue> item = new HashMap<>(key);
+                    if (count != null) {
+                        item.put("boycott_count", AttributeValue.fromN(String.valueOf(count)));
+                    }
+                    if (shardCount != null) {
+                        item.put("shard_count", AttributeValue.fromN(String.valueOf(shardCount)));
+                    }
+                    items.add(item);
+                }
+            }
+            return BatchGetItemResponse.builder()
+                    .responses(Map.of(CauseCompanyStatsUpdater.TABLE_NAME, items))
+                    .build();
+        });
+    }
+
+    @Test
+    public void testMergedShardTotalsMatchUnshardedTotals() {
+        CauseCompanyStatsUpdater unsharded = new CauseCompanyStatsUpdater(dynamoDb);
+        ShardedCounter shards = new ShardedCounter(8, Map.of());
+        CauseCompanyStatsUpdater sharded = new CauseCompanyStatsUpdater(dynamoDb, shards);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            int delta = random.nextInt(4) == 0 ? -1 : 1;
+            String sub = "user-" + random.nextInt(300);
+            unsharded.apply("plain-cause", "co1", delta, "Cause", "Company", sub);
+            sharded.apply("hot-cause", "co1", delta, "Cause", "Company", random.nextBoolean() ? sub : null);
+        }
+
+        long unshardedTotal = new CauseCompanyStatsReader(dynamoDb).readCount("plain-cause", "co1");
+        long shardedTotal = new CauseCompanyStatsReader(dynamoDb, shards).readCount("hot-cause", "co1");
+        assertEquals(unshardedTotal, shardedTotal);
+        assertTrue(table.keySet().stream().filter(key -> key.startsWith("hot-cause#")).count() > 1);
+        verify(dynamoDb, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    public void testLoweringTheShardCountKeepsReadingHigherShards() {
+        ShardedCounter eight = new ShardedCounter(8, Map.of());
+        CauseCompanyStatsUpdater wide = new CauseCompanyStatsUpdater(dynamoDb, eight);
+        for (int i = 0; i < 400; i++) {
+            wide.apply("hot-cause", "co1", 1, "Cause", "Company", "user-" + i);
+        }
+        ShardedCounter two = new ShardedCounter(1, ShardedCounter.parseOverrides("hot-cause#co1=2"));
+        CauseCompanyStatsUpdater narrow = new CauseCompanyStatsUpdater(dynamoDb, two);
+        for (int i = 0; i < 100; i++) {
+            narrow.apply("hot-cause", "co1", 1, "Cause", "Company", "user-" + i);
+        }
+
+        assertEquals(8, shardCounts.get("hot-cause#co1"));
+        assertEquals(500, new CauseCompanyStatsReader(dynamoDb, two).readCount("hot-cause", "co1"));
+        assertEquals(500, new CauseCompanyStatsReader(dynamoDb, ShardedCounter.unsharded())
+                .readCount("hot-cause", "co1"));
+        assertEquals(Map.of("co1", 500L, "co2", 0L), new CauseCompanyStatsReader(dynamoDb, ShardedCounter.unsharded())
+                .readCounts("hot-cause", List.of("co1", "co2")));
+        // Recorded once per container, not once per write.
+        verify(dynamoDb, times(2)).updateItem(argThat((UpdateItemRequest request) ->
+                request.expressionAttributeValues().containsKey(":shard_count")));
+    }
+
+    @Test
+    public void testShardItemsCarryTheirCompanyAndNoMetadata() {
+        UpdateItemRequest base = CauseCompanyStatsUpdater.buildRequest("c1", "co1", 0, 1, "Cause", "Company");
+        UpdateItemRequest shard = CauseCompanyStatsUpdater.buildRequest("c1", "co1", 3, 1, "Cause", "Company");
+
+        assertEquals("co1", base.key().get("company_id").s());
+        assertEquals(CauseCompanyStatsUpdater.COUNT_WITH_METADATA_EXPRESSION, base.updateExpression());
+        assertEquals("co1#shard-3", shard.key().get("company_id").s());
+        assertEquals(CauseCompanyStatsUpdater.SHARD_EXPRESSION, shard.updateExpression());
+        assertEquals("co1", shard.expressionAttributeValues().get(":shard_of").s());
+        assertFalse(shard.expressionAttributeValues().containsKey(":company_name"));
+        assertEquals("co1", ShardedCounter.baseCompanyId(Map.of(
+                "company_id", AttributeValue.fromS("co1#shard-3"), "shard_of", AttributeValue.fromS("co1"))));
+    }
+
+    @Test
+    public void testSameSubAlwaysLandsOnSameShard() {
+        ShardedCounter shards = new ShardedCounter(16, Map.of());
+        Set<Integer> picked = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            picked.add(shards.pickShard("c1", "co1", "11111111-2222-3333-4444-555555555555"));
+        }
+        assertEquals(1, picked.size());
+    }
+
+    @Test
+    public void testPerKeyOverrideTakesPrecedence() {
+        ShardedCounter shards = new ShardedCounter(1, ShardedCounter.parseOverrides("c1#co1=4, bad, c2#co2=x"));
+
+        assertEquals(4, shards.shardCount("c1", "co1"));
+        assertEquals(1, shards.shardCount("c2", "co2"));
+        assertEquals(List.of("co1", "co1#shard-1", "co1#shard-2", "co1#shard-3"), shards.shardCompanyIds("c1", "co1"));
+        assertEquals(0, shards.pickShard("c9", "co9", null));
+    }
+
+    @Test
+    public void testBaseCompanyIdStripsShardSuffix() {
+        assertEquals("co1", ShardedCounter.baseCompanyId("co1#shard-3"));
+        assertEquals("co1", ShardedCounter.baseCompanyId("co1"));
+    }
+
+    @Test
+    public void testUnprocessedKeysAreRetried() {
+        DynamoDbClient client = mock(DynamoDbClient.class);
+        Map<String, AttributeValue> shardOne = CauseCompanyStatsReader.key("c1", "co1#shard-1");
+        when(client.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(CauseCompanyStatsUpdater.TABLE_NAME, List.of(Map.of(
+                                "boycott_count", AttributeValue.fromN("3")))))
+                        .unprocessedKeys(Map.of(CauseCompanyStatsUpdater.TABLE_NAME,
+                                KeysAndAttributes.builder().keys(List.of(shardOne)).build()))
+                        .build())
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(CauseCompanyStatsUpdater.TABLE_NAME, List.of(Map.of(
+                                "boycott_count", AttributeValue.fromN("4")))))
+                        .build());
+
+        long total = new CauseCompanyStatsReader(client, new ShardedCounter(2, Map.of())).readCount("c1", "co1");
+
+        assertEquals(7, total);
+        verify(client, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    private static String tableKey(Map<String, AttributeValue> key) {
+        return key.get("cause_id").s() + "#" + key.get("company_id").s();
+    }
+}
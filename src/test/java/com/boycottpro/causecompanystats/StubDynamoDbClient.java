@@ -0,0 +1,65 @@
+package com.boycottpro.causecompanystats;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Blocking client stand-in that answers every UpdateItem after a fixed latency. An optional
+ * schedule, keyed by the zero-based call number, makes chosen calls fail as throttled.
+ */
+public class StubDynamoDbClient implements DynamoDbClient {
+
+    private final long latencyMillis;
+    private final IntPredicate throttled;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger updates = new AtomicInteger();
+
+    public StubDynamoDbClient(long latencyMillis) {
+        this(latencyMillis, call -> false);
+    }
+
+    public StubDynamoDbClient(long latencyMillis, IntPredicate throttled) {
+        this.latencyMillis = latencyMillis;
+        this.throttled = throttled;
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        if (throttled.test(calls.getAndIncrement())) {
+            throw ProvisionedThroughputExceededException.builder()
+                    .message("The level of configured provisioned throughput for the table was exceeded.")
+                    .build();
+        }
+        updates.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return UpdateItemResponse.builder().build();
+    }
+
+    public int updates() {
+        return updates.get();
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,181 @@
+package com.boycottpro.causecompanystats;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ThrottleRetryPolicyTest {
+
+    private static final int WRITES = 300;
+
+    @Test
+    public void testRetriesRecoverThrottledWritesWithinBudget() {
+        // Four of every ten calls are throttled, so no write sees more than four in a row.
+        Outcome noRetry = run(1);
+        Outcome withRetry = run(6);
+
+        assertEquals(WRITES * 6 / 10, noRetry.applied);
+        assertEquals(0, noRetry.sleeps);
+        assertEquals(WRITES, withRetry.applied);
+        // Every throttled call is retried: 300 writes take 500 calls, 200 of them throttled.
+        assertEquals(WRITES * 4 / 6, withRetry.sleeps);
+        // At most four backoffs capped at 5, 10, 20 and 40 ms.
+        assertTrue(withRetry.slowestMillis <= 75, withRetry.slowestMillis + " ms");
+    }
+
+    @Test
+    public void testBackoffStopsAtRemainingInvocationTime() {
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(0, call -> true);
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(50, 20, 200, 250, 10_000, null);
+        CauseCompanyStatsUpdater updater = new CauseCompanyStatsUpdater(dynamoDb, ShardedCounter.unsharded(), policy);
+        Context context = mock(Context.class);
+        when(context.getRemainingTimeInMillis()).thenReturn(400);
+
+        long start = System.nanoTime();
+        assertThrows(ProvisionedThroughputExceededException.class,
+                () -> updater.apply("c1", "co1", 1, "Cause", "Company", null, policy.deadline(context)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 400, elapsedMillis + " ms");
+        assertTrue(dynamoDb.calls() > 1);
+        assertEquals(0, dynamoDb.updates());
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRetried() {
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(5, 1, 10, 0, 1_000, null);
+        int[] attempts = new int[1];
+
+        assertThrows(DynamoDbException.class, () -> policy.execute("c1#co1", policy.defaultDeadline(), () -> {
+            attempts[0]++;
+            throw DynamoDbException.builder().message("DB error").build();
+        }));
+        assertEquals(1, attempts[0]);
+    }
+
+    @Test
+    public void testServerErrorsAreRetriedWithoutSlowingTheKey() {
+        HotKeyRateLimiter limiter = new HotKeyRateLimiter(100, 5, 100);
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(3, 1, 10, 0, 1_000, limiter);
+        int[] attempts = new int[1];
+
+        String result = policy.execute("c1#co1", policy.defaultDeadline(), () -> {
+            if (++attempts[0] < 3) {
+                throw DynamoDbException.builder().message("Internal error").statusCode(500).build();
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts[0]);
+        assertEquals(100, limiter.currentRate("c1#co1"), 0.001);
+    }
+
+    @Test
+    public void testAttemptCutOffAtDeadlineIsNotRetried() {
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(5, 1, 10, 0, 1_000, null);
+        int[] attempts = new int[1];
+
+        assertThrows(ApiCallTimeoutException.class, () -> policy.execute("c1#co1", policy.defaultDeadline(), () -> {
+            attempts[0]++;
+            throw ApiCallTimeoutException.create(1_000);
+        }));
+        assertEquals(1, attempts[0]);
+    }
+
+    @Test
+    public void testEachAttemptIsBoundedByRemainingTime() {
+        DynamoDbClient dynamoDb = mock(DynamoDbClient.class);
+        when(dynamoDb.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder().build());
+        CauseCompanyStatsUpdater updater = new CauseCompanyStatsUpdater(dynamoDb, ShardedCounter.unsharded(),
+                ThrottleRetryPolicy.none());
+
+        updater.apply("c1", "co1", 1, "Cause", "Company", null, System.nanoTime() + TimeUnit.SECONDS.toNanos(2));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb).updateItem(captor.capture());
+        Duration timeout = captor.getValue().overrideConfiguration().orElseThrow().apiCallTimeout().orElseThrow();
+        assertTrue(timeout.compareTo(Duration.ofSeconds(2)) <= 0 && timeout.compareTo(Duration.ZERO) > 0,
+                timeout.toString());
+        assertNull(ThrottleRetryPolicy.attemptTimeout(System.nanoTime() - 1));
+    }
+
+    @Test
+    public void testLimiterSmoothsOnlyTheHotKey() {
+        HotKeyRateLimiter limiter = new HotKeyRateLimiter(100, 5, 100);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(limiter.acquire("hot", deadline));
+        }
+        long hotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        start = System.nanoTime();
+        assertTrue(limiter.acquire("cold", deadline));
+        long coldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(hotMillis >= 150, hotMillis + " ms");
+        assertTrue(coldMillis < 50, coldMillis + " ms");
+        assertFalse(limiter.acquire("hot", System.nanoTime()));
+    }
+
+    @Test
+    public void testLimiterRateHalvesOnThrottleAndRecoversOnSuccess() {
+        HotKeyRateLimiter limiter = new HotKeyRateLimiter(100, 10, 100);
+
+        limiter.onThrottle("c1#co1");
+        limiter.onThrottle("c1#co1");
+        assertEquals(25, limiter.currentRate("c1#co1"), 0.001);
+        limiter.onSuccess("c1#co1");
+        assertEquals(35, limiter.currentRate("c1#co1"), 0.001);
+        for (int i = 0; i < 20; i++) {
+            limiter.onSuccess("c1#co1");
+        }
+        assertEquals(100, limiter.currentRate("c1#co1"), 0.001);
+        assertEquals(100, limiter.currentRate("c2#co2"), 0.001);
+    }
+
+    // Runs the writes one after another on a clock that only moves when the policy backs off.
+    private Outcome run(int maxAttempts) {
+        AtomicLong clock = new AtomicLong();
+        Outcome outcome = new Outcome();
+        ThrottleRetryPolicy policy = new ThrottleRetryPolicy(maxAttempts, 5, 100, 0, 2_000, null, clock::get,
+                millis -> {
+                    outcome.sleeps++;
+                    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+                });
+        StubDynamoDbClient dynamoDb = new StubDynamoDbClient(0, call -> call % 10 < 4);
+        CauseCompanyStatsUpdater updater = new CauseCompanyStatsUpdater(dynamoDb, ShardedCounter.unsharded(), policy);
+        for (int i = 0; i < WRITES; i++) {
+            long start = clock.get();
+            try {
+                updater.apply("c" + (i % 4), "co1", 1, "Cause", "Company", null, policy.defaultDeadline());
+                outcome.applied++;
+            } catch (ProvisionedThroughputExceededException e) {
+                // Counted by its absence from applied.
+            }
+            outcome.slowestMillis = Math.max(outcome.slowestMillis, TimeUnit.NANOSECONDS.toMillis(clock.get() - start));
+        }
+        assertEquals(outcome.applied, dynamoDb.updates());
+        return outcome;
+    }
+
+    private static final class Outcome {
+        private int applied;
+        private int sleeps;
+        private long slowestMillis;
+    }
+}
@@ -0,0 +1,100 @@
+package com.boycottpro.causecompanystats;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class UpdateRequestAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static volatile Object sink;
+
+    @Test
+    public void testTemplatesProduceSameRequestsAsBuilderPath() {
+        assertEquals(perCallBuild("c1", "co1", 1, "Cause", "Company"),
+                CauseCompanyStatsUpdater.buildRequest("c1", "co1", 1, "Cause", "Company"));
+        assertEquals(perCallBuild("c1", "co1", -1, null, null),
+                CauseCompanyStatsUpdater.buildRequest("c1", "co1", -1, null, null));
+        assertEquals(perCallBuild("c1", "co1", 7, null, null),
+                CauseCompanyStatsUpdater.buildRequest("c1", "co1", 7, null, null));
+    }
+
+    @Test
+    public void testTemplatesAllocateLessPerRequest() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (boolean increment : new boolean[]{true, false}) {
+            String desc = increment ? "Cause" : null;
+            String name = increment ? "Company" : null;
+            int delta = increment ? 1 : -1;
+            double perCall = bytesPerCall(threads, i -> perCallBuild("c" + (i & 7), "co1", delta, desc, name));
+            double templated = bytesPerCall(threads,
+                    i -> CauseCompanyStatsUpdater.buildRequest("c" + (i & 7), "co1", delta, desc, name));
+
+            System.out.printf("%s: per-call builder %.0f B/request, templates %.0f B/request%n",
+                    increment ? "increment" : "decrement", perCall, templated);
+            assertTrue(templated < perCall, "templated " + templated + " B vs per-call " + perCall + " B");
+        }
+    }
+
+    private double bytesPerCall(com.sun.management.ThreadMXBean threads, IntFunction<UpdateItemRequest> build) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = build.apply(i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = build.apply(i);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / (double) ITERATIONS;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    // The request construction as it was before the templates, kept as the allocation baseline.
+    private static UpdateItemRequest perCallBuild(String causeId, String companyId, int delta, String causeDesc,
+                                                  String companyName) {
+        Map<String, AttributeValue> key = Map.of(
+                "cause_id", AttributeValue.fromS(causeId),
+                "company_id", AttributeValue.fromS(companyId)
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":delta", AttributeValue.fromN(String.valueOf(delta)));
+        expressionAttributeValues.put(":zero", AttributeValue.fromN("0"));
+
+        StringBuilder updateExpression = new StringBuilder("SET boycott_count = if_not_exists(boycott_count, :zero) + :delta");
+
+        if (companyName != null && causeDesc != null) {
+            expressionAttributeValues.put(":company_name", AttributeValue.fromS(companyName));
+            expressionAttributeValues.put(":cause_desc", AttributeValue.fromS(causeDesc));
+            updateExpression.append(", company_name = if_not_exists(company_name, :company_name)");
+            updateExpression.append(", cause_desc = if_not_exists(cause_desc, :cause_desc)");
+        }
+
+        return UpdateItemRequest.builder()
+                .tableName("cause_company_stats")
+                .key(key)
+                .updateExpression(updateExpression.toString())
+                .expressionAttributeValues(expressionAttributeValues)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build();
+    }
+}